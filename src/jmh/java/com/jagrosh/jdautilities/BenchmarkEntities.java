@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities;
+
+import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.Permission;
+import net.dv8tion.jda.core.entities.ChannelType;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.MessageReaction;
+import net.dv8tion.jda.core.entities.Role;
+import net.dv8tion.jda.core.entities.SelfUser;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.entities.User;
+import net.dv8tion.jda.core.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.core.events.message.react.MessageReactionAddEvent;
+import net.dv8tion.jda.core.requests.restaction.MessageAction;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * A guild with a single text channel, a member and the bot, mocked for benchmarks without a connection to Discord,
+ * along with messages and reactions in it.
+ *
+ * <p>Mocks only return what they were stubbed with and do not record their invocations, so they add a small,
+ * constant cost to each call. Sent messages are never queued.
+ */
+public class BenchmarkEntities
+{
+    public static final long GUILD_ID = 300000000000000000L;
+    public static final long CHANNEL_ID = 300000000000000001L;
+    public static final long AUTHOR_ID = 300000000000000002L;
+    public static final long SELF_ID = 300000000000000003L;
+    public static final long MODERATOR_ROLE_ID = 300000000000000004L;
+    public static final long BOT_ROLE_ID = 300000000000000005L;
+
+    private final AtomicLong messageIds = new AtomicLong(400000000000000000L);
+
+    public final JDA jda;
+    public final Guild guild;
+    public final TextChannel channel;
+    public final User author;
+    public final Member member;
+    public final Member selfMember;
+
+    public BenchmarkEntities()
+    {
+        jda = stub(JDA.class);
+        SelfUser self = stub(SelfUser.class);
+        when(self.getIdLong()).thenReturn(SELF_ID);
+        when(self.isBot()).thenReturn(true);
+        when(jda.getSelfUser()).thenReturn(self);
+
+        guild = stub(Guild.class);
+        when(guild.getIdLong()).thenReturn(GUILD_ID);
+        when(guild.getJDA()).thenReturn(jda);
+        Role everyone = role(GUILD_ID, "@everyone", Permission.MESSAGE_READ, Permission.MESSAGE_WRITE,
+                Permission.MESSAGE_EMBED_LINKS, Permission.MESSAGE_HISTORY);
+        Role moderator = role(MODERATOR_ROLE_ID, "Moderator", Permission.MESSAGE_MANAGE, Permission.KICK_MEMBERS);
+        Role bot = role(BOT_ROLE_ID, "Bot", Permission.MESSAGE_ADD_REACTION, Permission.MESSAGE_MANAGE);
+        when(guild.getPublicRole()).thenReturn(everyone);
+        when(guild.getRoles()).thenReturn(Arrays.asList(moderator, bot, everyone));
+        when(guild.getRoleById(MODERATOR_ROLE_ID)).thenReturn(moderator);
+        when(guild.getRoleById(BOT_ROLE_ID)).thenReturn(bot);
+
+        channel = stub(TextChannel.class);
+        when(channel.getIdLong()).thenReturn(CHANNEL_ID);
+        when(channel.getType()).thenReturn(ChannelType.TEXT);
+        when(channel.getGuild()).thenReturn(guild);
+        when(channel.getJDA()).thenReturn(jda);
+        when(channel.getTopic()).thenReturn("General chat, no music here {-music}");
+        when(channel.canTalk()).thenReturn(true);
+        MessageAction action = stub(MessageAction.class);
+        when(channel.sendMessage(anyString())).thenReturn(action);
+        when(channel.sendMessage(any(Message.class))).thenReturn(action);
+        when(guild.getTextChannelById(CHANNEL_ID)).thenReturn(channel);
+        when(jda.getTextChannelById(CHANNEL_ID)).thenReturn(channel);
+
+        author = user(AUTHOR_ID);
+        when(author.getName()).thenReturn("Member");
+        when(author.getDiscriminator()).thenReturn("0001");
+        member = member(author, moderator);
+        selfMember = member(self, bot);
+        when(guild.getMember(author)).thenReturn(member);
+        when(guild.getMember(self)).thenReturn(selfMember);
+        when(guild.getSelfMember()).thenReturn(selfMember);
+    }
+
+    /**
+     * Creates an event for a message sent by the member in the text channel.
+     *
+     * @param  content
+     *         The content of the message
+     *
+     * @return The event
+     */
+    public MessageReceivedEvent message(String content)
+    {
+        Message message = stub(Message.class);
+        long id = messageIds.incrementAndGet();
+        when(message.getIdLong()).thenReturn(id);
+        when(message.getId()).thenReturn(Long.toUnsignedString(id));
+        when(message.getContentRaw()).thenReturn(content);
+        when(message.getAuthor()).thenReturn(author);
+        when(message.getMember()).thenReturn(member);
+        when(message.getChannel()).thenReturn(channel);
+        when(message.getTextChannel()).thenReturn(channel);
+        when(message.getChannelType()).thenReturn(ChannelType.TEXT);
+        when(message.getGuild()).thenReturn(guild);
+        when(message.getJDA()).thenReturn(jda);
+        when(message.isFromType(ChannelType.TEXT)).thenReturn(true);
+        return new MessageReceivedEvent(jda, 0, message);
+    }
+
+    /**
+     * Creates an event for a reaction added by a user to a message in the text channel.
+     *
+     * @param  messageId
+     *         The ID of the message
+     * @param  user
+     *         The user adding the reaction
+     *
+     * @return The event
+     */
+    public MessageReactionAddEvent reaction(long messageId, User user)
+    {
+        MessageReaction reaction = stub(MessageReaction.class);
+        when(reaction.getMessageIdLong()).thenReturn(messageId);
+        when(reaction.getMessageId()).thenReturn(Long.toUnsignedString(messageId));
+        when(reaction.getChannel()).thenReturn(channel);
+        when(reaction.getTextChannel()).thenReturn(channel);
+        when(reaction.getGuild()).thenReturn(guild);
+        when(reaction.getJDA()).thenReturn(jda);
+        return new MessageReactionAddEvent(jda, 0, user, reaction);
+    }
+
+    /**
+     * Creates a user.
+     *
+     * @param  id
+     *         The ID of the user
+     *
+     * @return The user
+     */
+    public static User user(long id)
+    {
+        User user = stub(User.class);
+        when(user.getIdLong()).thenReturn(id);
+        when(user.getId()).thenReturn(Long.toUnsignedString(id));
+        return user;
+    }
+
+    /**
+     * Creates a mock that only returns what it is stubbed with.
+     *
+     * @param  type
+     *         The type to mock
+     * @param  <T>
+     *         The type to mock
+     *
+     * @return The mock
+     */
+    public static <T> T stub(Class<T> type)
+    {
+        return mock(type, withSettings().stubOnly());
+    }
+
+    private Role role(long id, String name, Permission... permissions)
+    {
+        Role role = stub(Role.class);
+        when(role.getIdLong()).thenReturn(id);
+        when(role.getName()).thenReturn(name);
+        when(role.getGuild()).thenReturn(guild);
+        when(role.getPermissionsRaw()).thenReturn(Permission.getRaw(permissions));
+        return role;
+    }
+
+    private Member member(User user, Role role)
+    {
+        Member member = stub(Member.class);
+        when(member.getUser()).thenReturn(user);
+        when(member.getGuild()).thenReturn(guild);
+        when(member.getJDA()).thenReturn(jda);
+        when(member.getRoles()).thenReturn(Collections.singletonList(role));
+        return member;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient;
+
+import com.jagrosh.jdautilities.BenchmarkEntities;
+import com.jagrosh.jdautilities.commandclient.impl.CommandClientImpl;
+import net.dv8tion.jda.core.events.message.MessageReceivedEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link com.jagrosh.jdautilities.commandclient.impl.CommandClientImpl#onMessageReceived(MessageReceivedEvent)
+ * CommandClientImpl#onMessageReceived(MessageReceivedEvent)} for calls, unknown commands and ordinary chat, with
+ * a growing number of registered {@link com.jagrosh.jdautilities.commandclient.Command Command}s.
+ *
+ * <p>Commands have no requirements and do nothing, so calls measure prefix matching, routing and the
+ * bookkeeping around running a Command.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDispatchBenchmark
+{
+    // 20 and 21 straddle the size at which commands used to be indexed rather than scanned
+    @Param({"5", "20", "21", "200", "2000"})
+    public int commands;
+
+    private ScheduledExecutorService scheduler;
+    private CommandClientImpl client;
+    private MessageReceivedEvent firstCall;
+    private MessageReceivedEvent lastCall;
+    private MessageReceivedEvent aliasCall;
+    private MessageReceivedEvent unknownCall;
+    private MessageReceivedEvent chat;
+
+    @Setup
+    public void setup()
+    {
+        BenchmarkEntities entities = new BenchmarkEntities();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        CommandClientBuilder builder = new CommandClientBuilder()
+                .setOwnerId(Long.toUnsignedString(BenchmarkEntities.SELF_ID))
+                .setPrefix("!")
+                .setScheduleExecutor(scheduler);
+        for(int i = 0; i < commands; i++)
+            builder.addCommand(new NoopCommand("command"+i, "c"+i));
+        client = (CommandClientImpl) builder.build();
+
+        firstCall = entities.message("!command0 with some arguments");
+        lastCall = entities.message("!command"+(commands-1)+" with some arguments");
+        aliasCall = entities.message("!c"+(commands/2)+" with some arguments");
+        unknownCall = entities.message("!commander with some arguments");
+        chat = entities.message("has anyone seen the new episode yet? it was really good");
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public void firstCommand()
+    {
+        client.onMessageReceived(firstCall);
+    }
+
+    @Benchmark
+    public void lastCommand()
+    {
+        client.onMessageReceived(lastCall);
+    }
+
+    @Benchmark
+    public void alias()
+    {
+        client.onMessageReceived(aliasCall);
+    }
+
+    @Benchmark
+    public void unknownCommand()
+    {
+        client.onMessageReceived(unknownCall);
+    }
+
+    @Benchmark
+    public void nonCommandMessage()
+    {
+        client.onMessageReceived(chat);
+    }
+
+    static final class NoopCommand extends Command
+    {
+        // written on each run so the run cannot be optimized away
+        static volatile int sink;
+
+        NoopCommand(String name, String... aliases)
+        {
+            this.name = name;
+            this.aliases = aliases;
+            this.guildOnly = false;
+            this.usesTopicTags = false;
+        }
+
+        @Override
+        protected void execute(CommandEvent event)
+        {
+            sink = event.getArgs().length();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient;
+
+import com.jagrosh.jdautilities.BenchmarkEntities;
+import net.dv8tion.jda.core.Permission;
+import net.dv8tion.jda.core.events.message.MessageReceivedEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link com.jagrosh.jdautilities.commandclient.Command#run(CommandEvent) Command#run(CommandEvent)}
+ * with different sets of requirements, from none at all to roles and permissions of both the member and the bot.
+ *
+ * <p>The {@code denied} set fails the member's permission check, so it also measures building the failure
+ * response and replying with it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandRunBenchmark
+{
+    @Param({"none", "topic", "bot", "user", "role", "all", "denied"})
+    public String requirements;
+
+    private ScheduledExecutorService scheduler;
+    private CommandClient client;
+    private Command command;
+    private MessageReceivedEvent call;
+
+    @Setup
+    public void setup()
+    {
+        BenchmarkEntities entities = new BenchmarkEntities();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        command = new RequirementsCommand(requirements);
+        client = new CommandClientBuilder()
+                .setOwnerId(Long.toUnsignedString(BenchmarkEntities.SELF_ID))
+                .setPrefix("!")
+                .setScheduleExecutor(scheduler)
+                .addCommand(command)
+                .build();
+        call = entities.message("!run with some arguments");
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public void run()
+    {
+        command.run(new CommandEvent(call, 5, call.getMessage().getContentRaw().length(), client));
+    }
+
+    static final class RequirementsCommand extends Command
+    {
+        static volatile int sink;
+
+        RequirementsCommand(String requirements)
+        {
+            this.name = "run";
+            this.usesTopicTags = false;
+            switch(requirements)
+            {
+                case "topic":
+                    this.usesTopicTags = true;
+                    break;
+                case "bot":
+                    this.botPermissions = new Permission[]{Permission.MESSAGE_EMBED_LINKS, Permission.MESSAGE_ADD_REACTION};
+                    break;
+                case "user":
+                    this.userPermissions = new Permission[]{Permission.MESSAGE_MANAGE, Permission.KICK_MEMBERS};
+                    break;
+                case "role":
+                    this.requiredRole = "moderator";
+                    break;
+                case "all":
+                    this.usesTopicTags = true;
+                    this.requiredRole = "moderator";
+                    this.botPermissions = new Permission[]{Permission.MESSAGE_EMBED_LINKS, Permission.MESSAGE_ADD_REACTION};
+                    this.userPermissions = new Permission[]{Permission.MESSAGE_MANAGE, Permission.KICK_MEMBERS};
+                    break;
+                case "denied":
+                    this.userPermissions = new Permission[]{Permission.BAN_MEMBERS};
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        protected void execute(CommandEvent event)
+        {
+            sink = event.getArgs().length();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.utils;
+
+import com.jagrosh.jdautilities.BenchmarkEntities;
+import net.dv8tion.jda.bot.JDABot;
+import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.ISnowflake;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.entities.User;
+import net.dv8tion.jda.core.entities.impl.GuildImpl;
+import net.dv8tion.jda.core.entities.impl.MemberImpl;
+import net.dv8tion.jda.core.entities.impl.TextChannelImpl;
+import net.dv8tion.jda.core.entities.impl.UserImpl;
+import net.dv8tion.jda.core.utils.cache.SnowflakeCacheView;
+import org.mockito.stubbing.Answer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures {@link com.jagrosh.jdautilities.utils.FinderUtil FinderUtil} searches for users, members and text
+ * channels over synthetic caches of a growing number of entities, for each kind of query they handle.
+ *
+ * <ul>
+ *     <li>{@code mention} and {@code id} look up an entity by its ID.</li>
+ *     <li>{@code nameDiscrim} matches a {@code name#discriminator} reference, which scans the whole cache. Text
+ *     channels have no discriminator, so for them it is a query matching nothing at all.</li>
+ *     <li>{@code exact}, {@code prefix} and {@code substring} fall through to the generic search, matching a
+ *     single name exactly, one in every 256 names by their start, and one in every 16 somewhere inside.</li>
+ * </ul>
+ *
+ * <p>Entities are JDA's own implementations, so reading names costs what it does in a running bot. The caches
+ * holding them are mocks backed by lists, which add a small, constant cost to each search.
+ *
+ * <p>Results are in microseconds per search. Run with the GC profiler for allocations per search,
+ * IE: {@code gradlew jmh -PjmhArgs="FinderUtilBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FinderUtilBenchmark
+{
+    private static final long FIRST_ID = 310000000000000000L;
+    private static final String[] FIRST = {
+        "Quiet", "Brave", "Lucky", "Silent", "Happy", "Clever", "Swift", "Gentle",
+        "Wild", "Calm", "Bold", "Sleepy", "Fuzzy", "Shiny", "Grumpy", "Jolly"
+    };
+    private static final String[] SECOND = {
+        "Otter", "Falcon", "Badger", "Panda", "Tiger", "Raven", "Moose", "Gecko",
+        "Walrus", "Lynx", "Heron", "Bison", "Koala", "Viper", "Marmot", "Crane"
+    };
+
+    @Param({"1000", "100000", "1000000"})
+    public int entities;
+
+    @Param({"mention", "id", "nameDiscrim", "exact", "prefix", "substring"})
+    public String query;
+
+    private JDA jda;
+    private Guild guild;
+    private String userQuery;
+    private String channelQuery;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        GuildImpl owner = BenchmarkEntities.stub(GuildImpl.class);
+        List<User> users = new ArrayList<>(entities);
+        List<Member> members = new ArrayList<>(entities);
+        List<TextChannel> channels = new ArrayList<>(entities);
+        for(int i = 0; i < entities; i++)
+        {
+            UserImpl user = new UserImpl(FIRST_ID + i, null);
+            user.setName(name(i, ""));
+            user.setDiscriminator(discriminator(i));
+            users.add(user);
+
+            // every fourth member has a nickname, so effective names differ from names
+            MemberImpl member = new MemberImpl(owner, user);
+            if(i % 4 == 0)
+                member.setNickname("The " + user.getName());
+            members.add(member);
+
+            TextChannelImpl channel = new TextChannelImpl(FIRST_ID + i, owner);
+            channel.setName(name(i, "-").toLowerCase());
+            channels.add(channel);
+        }
+
+        jda = BenchmarkEntities.stub(JDA.class);
+        when(jda.asBot()).thenReturn(BenchmarkEntities.stub(JDABot.class));
+        when(jda.getUserById(anyString())).thenAnswer(byId(users));
+        doReturn(cache(JDA.class, "getUserCache", users)).when(jda).getUserCache();
+
+        guild = BenchmarkEntities.stub(Guild.class);
+        when(guild.getMemberById(anyString())).thenAnswer(byId(members));
+        when(guild.getTextChannelById(anyString())).thenAnswer(byId(channels));
+        doReturn(cache(Guild.class, "getMemberCache", members)).when(guild).getMemberCache();
+        doReturn(cache(Guild.class, "getTextChannelCache", channels)).when(guild).getTextChannelCache();
+
+        int target = entities / 2;
+        String id = Long.toUnsignedString(FIRST_ID + target);
+        switch(query)
+        {
+            case "mention":
+                userQuery = "<@" + id + ">";
+                channelQuery = "<#" + id + ">";
+                break;
+            case "id":
+                userQuery = channelQuery = id;
+                break;
+            case "nameDiscrim":
+                userQuery = channelQuery = name(target, "") + "#" + discriminator(target);
+                break;
+            case "exact":
+                userQuery = name(target, "");
+                channelQuery = name(target, "-").toLowerCase();
+                break;
+            case "prefix":
+                userQuery = (FIRST[target % 16] + SECOND[(target / 16) % 16]).toLowerCase();
+                channelQuery = (FIRST[target % 16] + "-" + SECOND[(target / 16) % 16]).toLowerCase();
+                break;
+            case "substring":
+                userQuery = SECOND[(target / 16) % 16].toLowerCase();
+                channelQuery = SECOND[(target / 16) % 16].toLowerCase() + "-";
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown query: " + query);
+        }
+    }
+
+    @Benchmark
+    public List<User> findUsers()
+    {
+        return FinderUtil.findUsers(userQuery, jda);
+    }
+
+    @Benchmark
+    public List<Member> findMembers()
+    {
+        return FinderUtil.findMembers(userQuery, guild);
+    }
+
+    @Benchmark
+    public List<TextChannel> findTextChannels()
+    {
+        return FinderUtil.findTextChannels(channelQuery, guild);
+    }
+
+    // Names such as "QuietOtter42", so each word pair starts one in every 256 names
+    private static String name(int i, String separator)
+    {
+        return FIRST[i % 16] + separator + SECOND[(i / 16) % 16] + separator + i;
+    }
+
+    private static String discriminator(int i)
+    {
+        return String.format("%04d", i % 9999 + 1);
+    }
+
+    // Entity IDs are consecutive, so an ID maps straight to its position in the list
+    private static <T> Answer<T> byId(List<T> elements)
+    {
+        return invocation -> {
+            long index = Long.parseUnsignedLong(invocation.getArgument(0)) - FIRST_ID;
+            return index >= 0 && index < elements.size() ? elements.get((int) index) : null;
+        };
+    }
+
+    // Members have a view of their own, so the view mocked is whatever type the getter returns
+    @SuppressWarnings("unchecked")
+    private static <T extends ISnowflake> SnowflakeCacheView<T> cache(Class<?> owner, String getter, List<T> elements)
+            throws NoSuchMethodException
+    {
+        SnowflakeCacheView<T> cache = (SnowflakeCacheView<T>) BenchmarkEntities.stub(owner.getMethod(getter).getReturnType());
+        when(cache.iterator()).thenAnswer(invocation -> elements.iterator());
+        when(cache.stream()).thenAnswer(invocation -> elements.stream());
+        doCallRealMethod().when(cache).forEach(any());
+        return cache;
+    }
+}
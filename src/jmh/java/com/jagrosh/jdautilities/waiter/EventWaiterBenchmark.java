@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.waiter;
+
+import com.jagrosh.jdautilities.BenchmarkEntities;
+import net.dv8tion.jda.core.events.message.react.MessageReactionAddEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Measures an {@link com.jagrosh.jdautilities.waiter.EventWaiter EventWaiter} holding a growing number of
+ * outstanding {@link net.dv8tion.jda.core.events.message.react.MessageReactionAddEvent MessageReactionAddEvent}
+ * waiters, each waiting for its owner to react to its own message like a menu does.
+ *
+ * <ul>
+ *     <li>{@code reactionToOtherMessage} and {@code reactionByOtherUser} deliver reactions no waiter accepts, the
+ *     first to a message nobody waits on and the second to a waited message, but by the wrong user.</li>
+ *     <li>{@code registerAndCancel} registers and cancels waiters from several threads at once.</li>
+ *     <li>{@code menuLifecycle} registers a waiter with a timeout and completes it with a reaction, the churn
+ *     produced by menus such as {@link com.jagrosh.jdautilities.menu.pagination.Paginator Paginator} and
+ *     {@link com.jagrosh.jdautilities.menu.orderedmenu.OrderedMenu OrderedMenu}.</li>
+ * </ul>
+ *
+ * <p>Results are in operations per second. Run with the GC profiler for allocations per operation,
+ * IE: {@code gradlew jmh -PjmhArgs="EventWaiterBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventWaiterBenchmark
+{
+    private static final long FIRST_MESSAGE_ID = 500000000000000000L;
+    private static final long OTHER_USER_ID = 300000000000000010L;
+    // each thread churns through its own range of message IDs, above those of the outstanding waiters
+    private static final long THREAD_ID_RANGE = 1000000L;
+    private static final int EVENTS_PER_THREAD = 64;
+    private static final Duration TIMEOUT = Duration.ofMinutes(5);
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int waiters;
+
+    // routed waiters are only tested against events for their message, unrouted ones against every event
+    @Param({"true", "false"})
+    public boolean routed;
+
+    private BenchmarkEntities entities;
+    private EventWaiter waiter;
+    private MessageReactionAddEvent toOtherMessage;
+    private MessageReactionAddEvent byOtherUser;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup
+    public void setup()
+    {
+        entities = new BenchmarkEntities();
+        waiter = new EventWaiter();
+        for(int i = 0; i < waiters; i++)
+            register(FIRST_MESSAGE_ID + i, event -> {});
+        toOtherMessage = entities.reaction(FIRST_MESSAGE_ID - 1, entities.author);
+        byOtherUser = entities.reaction(FIRST_MESSAGE_ID + waiters / 2, BenchmarkEntities.user(OTHER_USER_ID));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        waiter.shutdown();
+    }
+
+    @Benchmark
+    public void reactionToOtherMessage()
+    {
+        waiter.onEvent(toOtherMessage);
+    }
+
+    @Benchmark
+    public void reactionByOtherUser()
+    {
+        waiter.onEvent(byOtherUser);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CompletableFuture<MessageReactionAddEvent> registerAndCancel(ThreadState thread)
+    {
+        long messageId = thread.nextMessageId();
+        Predicate<MessageReactionAddEvent> condition = condition(messageId);
+        CompletableFuture<MessageReactionAddEvent> future = routed
+                ? waiter.await(MessageReactionAddEvent.class, EventWaiter.Route.MESSAGE, messageId, condition, TIMEOUT)
+                : waiter.await(MessageReactionAddEvent.class, condition, TIMEOUT);
+        future.cancel(false);
+        return future;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int menuLifecycle(ThreadState thread)
+    {
+        int index = thread.next();
+        register(thread.messageIds[index], event -> thread.completed++);
+        waiter.onEvent(thread.reactions[index]);
+        return thread.completed;
+    }
+
+    private void register(long messageId, Consumer<MessageReactionAddEvent> action)
+    {
+        if(routed)
+            waiter.waitForEvent(MessageReactionAddEvent.class, EventWaiter.Route.MESSAGE, messageId,
+                    condition(messageId), action, TIMEOUT.toMillis(), TimeUnit.MILLISECONDS, () -> {});
+        else
+            waiter.waitForEvent(MessageReactionAddEvent.class, condition(messageId), action,
+                    TIMEOUT.toMillis(), TimeUnit.MILLISECONDS, () -> {});
+    }
+
+    // What a menu checks: the reaction is to its message and by the user it was shown to
+    private static Predicate<MessageReactionAddEvent> condition(long messageId)
+    {
+        return event -> event.getMessageIdLong()==messageId
+                && event.getUser().getIdLong()==BenchmarkEntities.AUTHOR_ID;
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState
+    {
+        long[] messageIds;
+        MessageReactionAddEvent[] reactions;
+        int completed;
+        private long base;
+        private int cursor;
+
+        @Setup
+        public void setup(EventWaiterBenchmark benchmark)
+        {
+            base = FIRST_MESSAGE_ID + THREAD_ID_RANGE * (benchmark.threads.incrementAndGet() + 1);
+            messageIds = new long[EVENTS_PER_THREAD];
+            reactions = new MessageReactionAddEvent[EVENTS_PER_THREAD];
+            for(int i = 0; i < EVENTS_PER_THREAD; i++)
+            {
+                messageIds[i] = base + i;
+                reactions[i] = benchmark.entities.reaction(messageIds[i], benchmark.entities.author);
+            }
+        }
+
+        int next()
+        {
+            cursor = (cursor + 1) % EVENTS_PER_THREAD;
+            return cursor;
+        }
+
+        long nextMessageId()
+        {
+            return base + next();
+        }
+    }
+}
@@ -15,15 +15,18 @@
  */
 package com.jagrosh.jdautilities.commandclient;
 
-import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
+import com.jagrosh.jdautilities.commandclient.impl.CommandClientImpl;
+import com.jagrosh.jdautilities.commandclient.impl.CommandRequirements;
+import com.jagrosh.jdautilities.commandclient.impl.CommandRouter;
+import com.jagrosh.jdautilities.commandclient.impl.CooldownStore;
+import net.dv8tion.jda.core.JDA;
 import net.dv8tion.jda.core.Permission;
-import net.dv8tion.jda.core.entities.ChannelType;
 import net.dv8tion.jda.core.entities.TextChannel;
-import net.dv8tion.jda.core.entities.VoiceChannel;
-import net.dv8tion.jda.core.utils.PermissionUtil;
 
 /**
  * <h1><b>Commands In JDA-Utilities</b></h1>
@@ -99,6 +102,15 @@ public abstract class Command
      * A String name of a role required to use this command.
      */
     protected String requiredRole = null;
+
+    /**
+     * Names of roles, any one of which allows a member to use this command.
+     * <br>Checked together with {@link com.jagrosh.jdautilities.commandclient.Command#requiredRole requiredRole},
+     * so a member needs only one of all the roles named by either.
+     *
+     * @since  1.9
+     */
+    protected String[] requiredRoles = new String[0];
     
     /**
      * {@code true} if the command may only be used by a User with an ID matching the
@@ -162,9 +174,26 @@ public abstract class Command
      * <br>Default {@link com.jagrosh.jdautilities.commandclient.Command.CooldownScope#USER CooldownScope.USER}.
      */
     protected CooldownScope cooldownScope = CooldownScope.USER;
-    
-    private final static String BOT_PERM = "%s I need the %s permission in this %s!";
-    private final static String USER_PERM = "%s You must have the %s permission in this %s to use that!";
+
+    /**
+     * The {@link java.util.concurrent.Executor Executor} this command runs on once it is called.
+     * <br>If this is {@code null}, the command runs on the Executor of its
+     * {@link com.jagrosh.jdautilities.commandclient.Command.Category Category}, or on the one
+     * of the {@link com.jagrosh.jdautilities.commandclient.CommandClient CommandClient} if neither is set.
+     * <br>Default {@code null}.
+     *
+     * <p>This is useful for separating commands that take a long time to execute (IE: commands that
+     * render images or query a database) from the rest of the bot's commands.
+     */
+    protected Executor executor = null;
+
+    // cooldowns can only be applied in a single step if the default key format is used
+    private final boolean customCooldownKey = overridesCooldownKey(getClass());
+
+    private final LongAdder uses = new LongAdder();
+
+    // compiled on first use, as subclasses set the fields in their constructors
+    private volatile CommandRequirements requirements;
     
     /**
      * The main body method of a {@link com.jagrosh.jdautilities.commandclient.Command Command}. 
@@ -187,142 +216,79 @@ public abstract class Command
      */
     public final void run(CommandEvent event)
     {
-        // child check
-        if(!event.getArgs().isEmpty())
+        // child check, the help consumer keeps priority over a child named like the help word
+        if(children.length>0 && event.getArgsStart()<event.getArgsEnd())
         {
-            String[] parts = Arrays.copyOf(event.getArgs().split("\\s+",2), 2);
-            if(helpBiConsumer!=null && parts[0].equalsIgnoreCase(event.getClient().getHelpWord()))
-            {
-                helpBiConsumer.accept(event, this);
-                return;
-            }
-            for(Command cmd: children)
+            String content = event.getArgsContent();
+            int start = event.getArgsStart();
+            int end = event.getArgsEnd();
+            int wordEnd = CommandRouter.wordEnd(content, start, end);
+            if(helpBiConsumer==null || !CommandRouter.isWord(content, start, wordEnd, event.getClient().getHelpWord()))
             {
-                if(cmd.isCommandFor(parts[0]))
+                for(Command cmd: children)
                 {
-                    event.setArgs(parts[1]==null ? "" : parts[1]);
-                    cmd.run(event);
-                    return;
+                    if(cmd.isCommandFor(content, start, wordEnd))
+                    {
+                        event.setArgs(content, CommandRouter.skipWhitespace(content, wordEnd, end), end);
+                        cmd.run(event);
+                        return;
+                    }
                 }
             }
         }
-        
-        // owner check
-        if(ownerCommand && !(event.isOwner()))
-        {
-            terminate(event,null);
-            return;
-        }
-        
-        // category check
-        if(category!=null && !category.test(event))
-        {
-            terminate(event, category.getFailureResponse());
-            return;
-        }
+        runResolved(event);
+    }
 
-        // is allowed check
-        if(event.isFromType(ChannelType.TEXT) && !isAllowed(event.getTextChannel()))
+    /**
+     * <b>DO NOT USE THIS!</b>
+     *
+     * <p>This is a method necessary for running a Command that a
+     * {@link com.jagrosh.jdautilities.commandclient.impl.CommandRouter CommandRouter} already resolved, without
+     * looking for a child Command to run a second time.
+     * <br><b>Using this anywhere in your code can and will break your bot.</b>
+     *
+     * @param  event
+     *         The CommandEvent that triggered this Command
+     */
+    public final void runResolved(CommandEvent event)
+    {
+        // help check
+        if(helpBiConsumer!=null && event.getArgsStart()<event.getArgsEnd())
         {
-            terminate(event, "That command cannot be used in this channel!");
-            return;
-        }
-        
-        // required role check
-        if(requiredRole!=null)
-            if(!event.isFromType(ChannelType.TEXT) || !event.getMember().getRoles().stream().anyMatch(r -> r.getName().equalsIgnoreCase(requiredRole)))
+            String content = event.getArgsContent();
+            int start = event.getArgsStart();
+            if(CommandRouter.isWord(content, start, CommandRouter.wordEnd(content, start, event.getArgsEnd()),
+                    event.getClient().getHelpWord()))
             {
-                terminate(event, event.getClient().getError()+" You must have a role called `"+requiredRole+"` to use that!");
+                helpBiConsumer.accept(event, this);
                 return;
             }
-        
-        // availability check
-        if(event.getChannelType()==ChannelType.TEXT)
-        {
-            // bot perms
-            for(Permission p: botPermissions)
-            {
-                if(p.isChannel())
-                {
-                    if(p.name().startsWith("VOICE"))
-                    {
-                        VoiceChannel vc = event.getMember().getVoiceState().getChannel();
-                        if(vc==null)
-                        {
-                            terminate(event, event.getClient().getError()+" You must be in a voice channel to use that!");
-                            return;
-                        }
-                        else if(!PermissionUtil.checkPermission(vc, event.getSelfMember(), p))
-                        {
-                            terminate(event, String.format(BOT_PERM, event.getClient().getError(), p.name(), "Voice Channel"));
-                            return;
-                        }
-                    }
-                    else
-                    {
-                        if(!PermissionUtil.checkPermission(event.getTextChannel(), event.getSelfMember(), p))
-                        {
-                            terminate(event, String.format(BOT_PERM, event.getClient().getError(), p.name(), "Channel"));
-                            return;
-                        }
-                    }
-                }
-                else
-                {
-                    if(!PermissionUtil.checkPermission(event.getTextChannel(), event.getSelfMember(), p))
-                    {
-                        terminate(event, String.format(BOT_PERM, event.getClient().getError(), p.name(), "Guild"));
-                        return;
-                    }
-                }
-            }
-            
-            //user perms
-            for(Permission p: userPermissions)
-            {
-                if(p.isChannel())
-                {
-                    if(!PermissionUtil.checkPermission(event.getTextChannel(), event.getMember(), p))
-                    {
-                        terminate(event, String.format(USER_PERM, event.getClient().getError(), p.name(), "Channel"));
-                        return;
-                    }
-                }
-                else
-                {
-                    if(!PermissionUtil.checkPermission(event.getTextChannel(), event.getMember(), p))
-                    {
-                        terminate(event, String.format(USER_PERM, event.getClient().getError(), p.name(), "Guild"));
-                        return;
-                    }
-                }
-            }
         }
-        else if(guildOnly)
+        
+        // owner, category, channel, role, permission and guild checks
+        CommandMetrics metrics = event.getClient().getMetrics();
+        long start = System.nanoTime();
+        CommandRequirements.Requirement failed = getRequirements().check(event);
+        if(failed!=null)
         {
-            terminate(event, event.getClient().getError()+" This command cannot be used in Direct messages");
+            metrics.record(CommandMetrics.Stage.REQUIREMENTS, start);
+            terminate(event, failed.getFailureResponse(event), failed.getTerminationReason());
             return;
         }
         
-        //cooldown check
-        if(cooldown>0)
+        //cooldown check, the cooldown was already applied when an edited call first ran
+        String cooldownError = cooldown>0 && !event.isEdited() ? checkCooldown(event) : null;
+        metrics.record(CommandMetrics.Stage.REQUIREMENTS, start);
+        if(cooldownError!=null)
         {
-            String key = getCooldownKey(event);
-            int remaining = event.getClient().getRemainingCooldown(key);
-            if(remaining>0)
-            {
-                String error = getCooldownError(event, remaining);
-                if(error!=null)
-                {
-                    terminate(event, error);
-                    return;
-                }
-            }
-            else event.getClient().applyCooldown(key, cooldown);
+            terminate(event, cooldownError, CommandMetrics.TerminationReason.COOLDOWN);
+            return;
         }
         
         // run
+        start = System.nanoTime();
         execute(event);
+        metrics.record(CommandMetrics.Stage.EXECUTION, start);
         if(event.getClient().getListener()!=null)
             event.getClient().getListener().onCompletedCommand(event, this);
     }
@@ -345,6 +311,16 @@ public abstract class Command
         return false;
     }
 
+    private boolean isCommandFor(String content, int start, int end)
+    {
+        if(CommandRouter.isWord(content, start, end, name))
+            return true;
+        for(String alias: aliases)
+            if(CommandRouter.isWord(content, start, end, alias))
+                return true;
+        return false;
+    }
+
     /**
      * Checks whether a command is allowed in a {@link net.dv8tion.jda.core.entities.TextChannel TextChannel}
      * by searching the channel topic for topic tags relating to the command.
@@ -370,24 +346,7 @@ public abstract class Command
             return true;
         if(channel==null)
             return true;
-        String topic = channel.getTopic();
-        if(topic==null || topic.isEmpty())
-            return true;
-        topic = topic.toLowerCase();
-        String lowerName = name.toLowerCase();
-        if(topic.contains("{"+lowerName+"}"))
-            return true;
-        if(topic.contains("{-"+lowerName+"}"))
-            return false;
-        String lowerCat = category==null ? null : category.getName().toLowerCase();
-        if(lowerCat!=null)
-        {
-            if(topic.contains("{"+lowerCat+"}"))
-                return true;
-            if(topic.contains("{-"+lowerCat+"}"))
-                return false;
-        }
-        return !topic.contains("{-all}");
+        return getRequirements().isAllowedByTopic(channel);
     }
 
     /**
@@ -441,6 +400,20 @@ public abstract class Command
         return guildOnly;
     }
 
+    /**
+     * Checks if this Command is allowed or denied by the topic tags of the channel it is called in.
+     *
+     * @return {@code true} if this Command uses topic tags
+     *
+     * @since  1.9
+     *
+     * @see    com.jagrosh.jdautilities.commandclient.Command#usesTopicTags
+     */
+    public boolean usesTopicTags()
+    {
+        return usesTopicTags;
+    }
+
     /**
      * Gets the {@link com.jagrosh.jdautilities.commandclient.Command#requiredRole Command.requiredRole} for the Command.
      *
@@ -451,6 +424,18 @@ public abstract class Command
         return requiredRole;
     }
 
+    /**
+     * Gets the {@link com.jagrosh.jdautilities.commandclient.Command#requiredRoles Command.requiredRoles} for the Command.
+     *
+     * @return The requiredRoles for the Command
+     *
+     * @since  1.9
+     */
+    public String[] getRequiredRoles()
+    {
+        return requiredRoles;
+    }
+
     /**
      * Gets the {@link com.jagrosh.jdautilities.commandclient.Command#cooldown Command.cooldown} for the Command.
      *
@@ -501,6 +486,18 @@ public abstract class Command
         return children;
     }
 
+    /**
+     * Gets the {@link com.jagrosh.jdautilities.commandclient.Command#helpBiConsumer Command.helpBiConsumer} for the Command.
+     *
+     * @return The help BiConsumer for the Command, or {@code null} if it has none
+     *
+     * @since  1.9
+     */
+    public BiConsumer<CommandEvent, Command> getHelpBiConsumer()
+    {
+        return helpBiConsumer;
+    }
+
     /**
      * Checks whether or not this command is an owner only Command.
      * 
@@ -520,9 +517,79 @@ public abstract class Command
     {
         return hidden;
     }
+
+    /**
+     * Gets the {@link com.jagrosh.jdautilities.commandclient.Command#executor Command.executor} for the Command.
+     *
+     * @return The executor for the Command, or {@code null} if it uses the one of its Category or CommandClient
+     */
+    public Executor getExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * Gets the number of times the Command has been called during this session.
+     *
+     * <p>Only Commands registered to a {@link com.jagrosh.jdautilities.commandclient.CommandClient CommandClient}
+     * are counted, calls to {@link com.jagrosh.jdautilities.commandclient.Command#children children} count
+     * towards their registered parent.
+     *
+     * @return The number of uses of the Command
+     */
+    public long getUses()
+    {
+        return uses.sum();
+    }
+
+    /**
+     * <b>DO NOT USE THIS!</b>
+     *
+     * <p>This is a method necessary for counting the uses of a Command without
+     * any contention between the threads calling it.
+     * <br><b>Using this anywhere in your code can and will break your bot.</b>
+     */
+    public void incrementUses()
+    {
+        uses.increment();
+    }
+
+    /**
+     * <b>DO NOT USE THIS!</b>
+     *
+     * <p>This is a method necessary for checking the requirements of a Command once they
+     * have been compiled from its settings.
+     * <br><b>Using this anywhere in your code can and will break your bot.</b>
+     *
+     * @return The compiled requirements of this Command
+     */
+    public CommandRequirements getRequirements()
+    {
+        CommandRequirements compiled = requirements;
+        if(compiled==null)
+            requirements = compiled = CommandRequirements.compile(this);
+        return compiled;
+    }
     
-    private void terminate(CommandEvent event, String message)
+    // Applies the cooldown if it is over, returning the error to respond with if it is not
+    private String checkCooldown(CommandEvent event)
     {
+        if(!customCooldownKey && event.getClient() instanceof CommandClientImpl)
+        {
+            int remaining = applyCooldown(event, ((CommandClientImpl)event.getClient()).getCooldownStore());
+            return remaining>0 ? getCooldownError(event, remaining) : null;
+        }
+        String key = getCooldownKey(event);
+        int remaining = event.getClient().getRemainingCooldown(key);
+        if(remaining>0)
+            return getCooldownError(event, remaining);
+        event.getClient().applyCooldown(key, cooldown);
+        return null;
+    }
+
+    private void terminate(CommandEvent event, String message, CommandMetrics.TerminationReason reason)
+    {
+        event.getClient().getMetrics().terminated(reason);
         if(message!=null)
             event.reply(message);
         if(event.getClient().getListener()!=null)
@@ -558,6 +625,43 @@ public abstract class Command
         }
     }
 
+    // Mirrors getCooldownKey(CommandEvent) without creating the key
+    private int applyCooldown(CommandEvent event, CooldownStore store)
+    {
+        long author = event.getAuthor().getIdLong();
+        long channel = event.getChannel().getIdLong();
+        long guild = event.getGuild()!=null ? event.getGuild().getIdLong() : 0L;
+        JDA.ShardInfo shard = event.getJDA().getShardInfo();
+        switch (cooldownScope)
+        {
+            case USER:         return store.tryApply(name, cooldownScope, author, 0, cooldown);
+            case USER_GUILD:   return guild!=0L ? store.tryApply(name, cooldownScope, author, guild, cooldown) :
+                    store.tryApply(name, CooldownScope.USER_CHANNEL, author, channel, cooldown);
+            case USER_CHANNEL: return store.tryApply(name, cooldownScope, author, channel, cooldown);
+            case GUILD:        return guild!=0L ? store.tryApply(name, cooldownScope, guild, 0, cooldown) :
+                    store.tryApply(name, CooldownScope.CHANNEL, channel, 0, cooldown);
+            case CHANNEL:      return store.tryApply(name, cooldownScope, channel, 0, cooldown);
+            case SHARD:        return shard!=null ? store.tryApply(name, cooldownScope, shard.getShardId(), 0, cooldown) :
+                    store.tryApply(name, CooldownScope.GLOBAL, 0, 0, cooldown);
+            case USER_SHARD:   return shard!=null ? store.tryApply(name, cooldownScope, author, shard.getShardId(), cooldown) :
+                    store.tryApply(name, CooldownScope.USER, author, 0, cooldown);
+            case GLOBAL:       return store.tryApply(name, cooldownScope, 0, 0, cooldown);
+            default:           return 0;
+        }
+    }
+
+    private static boolean overridesCooldownKey(Class<?> type)
+    {
+        try
+        {
+            return type.getMethod("getCooldownKey", CommandEvent.class).getDeclaringClass()!=Command.class;
+        }
+        catch(NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
     /**
      * Gets an error message for this Command under the provided
      * {@link com.jagrosh.jdautilities.commandclient.CommandEvent CommanEvent}.
@@ -598,6 +702,7 @@ public abstract class Command
         private final String name;
         private final String failResponse;
         private final Predicate<CommandEvent> predicate;
+        private final Executor executor;
         
         /**
          * A Command Category containing a name.
@@ -610,6 +715,7 @@ public abstract class Command
             this.name = name;
             this.failResponse = null;
             this.predicate = null;
+            this.executor = null;
         }
         
         /**
@@ -628,6 +734,7 @@ public abstract class Command
             this.name = name;
             this.failResponse = null;
             this.predicate = predicate;
+            this.executor = null;
         }
         
         /**
@@ -649,6 +756,33 @@ public abstract class Command
             this.name = name;
             this.failResponse = failResponse;
             this.predicate = predicate;
+            this.executor = null;
+        }
+
+        /**
+         * A Command Category containing a name, a {@link java.util.function.Predicate},
+         * a failure response, and an {@link java.util.concurrent.Executor Executor}.
+         *
+         * <p>The command will be terminated if the {@link #test(CommandEvent)}
+         * returns {@code false}, and the failure response will be sent.
+         * <br>Commands of this Category that do not specify an Executor of their own
+         * will run on the Executor provided.
+         *
+         * @param  name
+         *         The name of the Category
+         * @param  failResponse
+         *         The response if the test fails, may be {@code null}
+         * @param  predicate
+         *         The Category predicate to test, may be {@code null}
+         * @param  executor
+         *         The Executor to run Commands of this Category on
+         */
+        public Category(String name, String failResponse, Predicate<CommandEvent> predicate, Executor executor)
+        {
+            this.name = name;
+            this.failResponse = failResponse;
+            this.predicate = predicate;
+            this.executor = executor;
         }
         
         /**
@@ -670,6 +804,16 @@ public abstract class Command
         {
             return failResponse;
         }
+
+        /**
+         * Gets the {@link java.util.concurrent.Executor Executor} of the Category.
+         *
+         * @return The Executor of the Category, or {@code null} if it has none
+         */
+        public Executor getExecutor()
+        {
+            return executor;
+        }
         
         /**
          * Runs a test of the provided {@link java.util.function.Predicate}.
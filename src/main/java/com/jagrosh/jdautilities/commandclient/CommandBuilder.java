@@ -21,6 +21,7 @@ import net.dv8tion.jda.core.Permission;
 
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -46,6 +47,7 @@ public class CommandBuilder
     private String arguments = null;
     private boolean guildOnly = true;
     private String requiredRole = null;
+    private String[] requiredRoles = new String[0];
     private boolean ownerCommand = false;
     private int cooldown = 0;
     private Permission[] userPermissions = new Permission[0];
@@ -56,6 +58,7 @@ public class CommandBuilder
     private boolean usesTopicTags = true;
     private CooldownScope cooldownScope = CooldownScope.USER;
     private boolean hidden = false;
+    private Executor executor = null;
 
     /**
      * Sets the {@link com.jagrosh.jdautilities.commandclient.Command#name name}
@@ -153,6 +156,23 @@ public class CommandBuilder
         return this;
     }
 
+    /**
+     * Sets the names of {@link com.jagrosh.jdautilities.commandclient.Command#requiredRoles
+     * required roles}, any one of which allows using the Command built from this CommandBuilder.
+     *
+     * @param  requiredRoles
+     *         The names of the roles, any one of which is required to use the Command to be built.
+     *
+     * @return This CommandBuilder
+     *
+     * @since  1.9
+     */
+    public CommandBuilder setRequiredRoles(String... requiredRoles)
+    {
+        this.requiredRoles = requiredRoles;
+        return this;
+    }
+
     /**
      * Sets the Command built to be {@link com.jagrosh.jdautilities.commandclient.Command#ownerCommand
      * owner only}.
@@ -449,6 +469,22 @@ public class CommandBuilder
         return this;
     }
 
+    /**
+     * Sets the {@link com.jagrosh.jdautilities.commandclient.Command#executor Executor}
+     * the Command built from this CommandBuilder runs on.
+     *
+     * @param  executor
+     *         The Executor of the Command to be built, or {@code null} to use the one of its
+     *         Category or CommandClient.
+     *
+     * @return This CommandBuilder
+     */
+    public CommandBuilder setExecutor(Executor executor)
+    {
+        this.executor = executor;
+        return this;
+    }
+
     /**
      * Builds the {@link com.jagrosh.jdautilities.commandclient.Command Command}
      * using the previously provided information.
@@ -488,10 +524,10 @@ public class CommandBuilder
     public Command build(BiConsumer<Command,CommandEvent> execution)
     {
         return new BlankCommand(name, help, category, arguments,
-                guildOnly, requiredRole, ownerCommand, cooldown,
+                guildOnly, requiredRole, requiredRoles, ownerCommand, cooldown,
                 userPermissions, botPermissions, aliases.toArray(new String[aliases.size()]),
                 children.toArray(new Command[children.size()]), helpBiConsumer, usesTopicTags,
-                cooldownScope, hidden)
+                cooldownScope, hidden, executor)
         {
             @Override
             protected void execute(CommandEvent event)
@@ -504,11 +540,12 @@ public class CommandBuilder
     private abstract class BlankCommand extends Command
     {
         BlankCommand(String name, String help, Category category,
-                     String arguments, boolean guildOnly, String requiredRole,
+                     String arguments, boolean guildOnly, String requiredRole, String[] requiredRoles,
                      boolean ownerCommand, int cooldown, Permission[] userPermissions,
                      Permission[] botPermissions, String[] aliases, Command[] children,
                      BiConsumer<CommandEvent, Command> helpBiConsumer,
-                     boolean usesTopicTags, CooldownScope cooldownScope, boolean hidden)
+                     boolean usesTopicTags, CooldownScope cooldownScope, boolean hidden,
+                     Executor executor)
         {
             this.name = name;
             this.help = help;
@@ -516,6 +553,7 @@ public class CommandBuilder
             this.arguments = arguments;
             this.guildOnly = guildOnly;
             this.requiredRole = requiredRole;
+            this.requiredRoles = requiredRoles;
             this.ownerCommand = ownerCommand;
             this.cooldown = cooldown;
             this.userPermissions = userPermissions;
@@ -526,6 +564,7 @@ public class CommandBuilder
             this.usesTopicTags = usesTopicTags;
             this.cooldownScope = cooldownScope;
             this.hidden = hidden;
+            this.executor = executor;
         }
     }
 }
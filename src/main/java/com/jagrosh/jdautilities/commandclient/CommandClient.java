@@ -15,8 +15,12 @@
  */
 package com.jagrosh.jdautilities.commandclient;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
@@ -87,19 +91,15 @@ public interface CommandClient
      * Adds a single {@link com.jagrosh.jdautilities.commandclient.Command Command} to this CommandClient's
      * registered Commands.
      *
-     * <p>For CommandClient's containing 20 commands or less, command calls by users will have the bot iterate
-     * through the entire {@link java.util.ArrayList ArrayList} to find the command called. As expected, this
-     * can get fairly hefty if a bot has a lot of Commands registered to it.
+     * <p>Command calls by users are resolved using a case-insensitive trie which indexes the
+     * {@link com.jagrosh.jdautilities.commandclient.Command#name name} and the
+     * {@link com.jagrosh.jdautilities.commandclient.Command#aliases aliases} of each Command, as well as those of
+     * its {@link com.jagrosh.jdautilities.commandclient.Command#children children}, when it is registered.
+     * <br>This means the time taken to find the command called does not depend on how many Commands are registered.
      *
-     * <p>To prevent delay a CommandClient that has more that 20 Commands registered to it will begin to use
-     * <b>indexed calls</b>.
-     * <br>Indexed calls use a {@link java.util.HashMap HashMap} which links their
-     * {@link com.jagrosh.jdautilities.commandclient.Command#name name} and their
-     * {@link com.jagrosh.jdautilities.commandclient.Command#aliases aliases} to the index that which they
-     * are located at in the ArrayList they are stored.
-     *
-     * <p>This means that all insertion and removal of Commands must reorganize the index maintained by the HashMap.
-     * <br>For this particular insertion, the Command provided is inserted at the end of the index, meaning it will
+     * <p>The index is independent from the order of the {@link java.util.ArrayList ArrayList} the Commands are stored
+     * in, which is only used for the default help builder.
+     * <br>For this particular insertion, the Command provided is inserted at the end of the ArrayList, meaning it will
      * become the "rightmost" Command in the ArrayList.
      *
      * @param  command
@@ -114,18 +114,14 @@ public interface CommandClient
      * Adds a single {@link com.jagrosh.jdautilities.commandclient.Command Command} to this CommandClient's
      * registered Commands at the specified index.
      *
-     * <p>For CommandClient's containing 20 commands or less, command calls by users will have the bot iterate
-     * through the entire {@link java.util.ArrayList ArrayList} to find the command called. As expected, this
-     * can get fairly hefty if a bot has a lot of Commands registered to it.
-     *
-     * <p>To prevent delay a CommandClient that has more that 20 Commands registered to it will begin to use
-     * <b>indexed calls</b>.
-     * <br>Indexed calls use a {@link java.util.HashMap HashMap} which links their
-     * {@link com.jagrosh.jdautilities.commandclient.Command#name name} and their
-     * {@link com.jagrosh.jdautilities.commandclient.Command#aliases aliases} to the index that which they
-     * are located at in the ArrayList they are stored.
+     * <p>Command calls by users are resolved using a case-insensitive trie which indexes the
+     * {@link com.jagrosh.jdautilities.commandclient.Command#name name} and the
+     * {@link com.jagrosh.jdautilities.commandclient.Command#aliases aliases} of each Command, as well as those of
+     * its {@link com.jagrosh.jdautilities.commandclient.Command#children children}, when it is registered.
+     * <br>This means the time taken to find the command called does not depend on how many Commands are registered.
      *
-     * <p>This means that all insertion and removal of Commands must reorganize the index maintained by the HashMap.
+     * <p>The index is independent from the order of the {@link java.util.ArrayList ArrayList} the Commands are stored
+     * in, which is only used for the default help builder.
      * <br>For this particular insertion, the Command provided is inserted at the index specified, meaning it will
      * become the Command located at that index in the ArrayList. This will shift the Command previously located at
      * that index as well as any located at greater indices, right one index ({@code size()+1}).
@@ -146,19 +142,15 @@ public interface CommandClient
      * Removes a single {@link com.jagrosh.jdautilities.commandclient.Command Command} from this CommandClient's
      * registered Commands at the index linked to the provided name/alias.
      *
-     * <p>For CommandClient's containing 20 commands or less, command calls by users will have the bot iterate
-     * through the entire {@link java.util.ArrayList ArrayList} to find the command called. As expected, this
-     * can get fairly hefty if a bot has a lot of Commands registered to it.
-     *
-     * <p>To prevent delay a CommandClient that has more that 20 Commands registered to it will begin to use
-     * <b>indexed calls</b>.
-     * <br>Indexed calls use a {@link java.util.HashMap HashMap} which links their
-     * {@link com.jagrosh.jdautilities.commandclient.Command#name name} and their
-     * {@link com.jagrosh.jdautilities.commandclient.Command#aliases aliases} to the index that which they
-     * are located at in the ArrayList they are stored.
+     * <p>Command calls by users are resolved using a case-insensitive trie which indexes the
+     * {@link com.jagrosh.jdautilities.commandclient.Command#name name} and the
+     * {@link com.jagrosh.jdautilities.commandclient.Command#aliases aliases} of each Command, as well as those of
+     * its {@link com.jagrosh.jdautilities.commandclient.Command#children children}, when it is registered.
+     * <br>This means the time taken to find the command called does not depend on how many Commands are registered.
      *
-     * <p>This means that all insertion and removal of Commands must reorganize the index maintained by the HashMap.
-     * <br>For this particular removal, the Command removed is that of the corresponding index retrieved by the name
+     * <p>The index is independent from the order of the {@link java.util.ArrayList ArrayList} the Commands are stored
+     * in, which is only used for the default help builder.
+     * <br>For this particular removal, the Command removed is the one indexed under the name
      * provided. This will shift any Commands located at greater indices, left one index ({@code size()-1}).
      *
      * @param  name
@@ -276,6 +268,9 @@ public interface CommandClient
     
     /**
      * Cleans up expired cooldowns to reduce memory.
+     *
+     * <p>Expired cooldowns are removed automatically, a little at a time, so
+     * calling this is unnecessary.
      */
     void cleanCooldowns();
     
@@ -307,6 +302,29 @@ public interface CommandClient
      *         Command
      */
     int getCommandUses(String name);
+
+    /**
+     * Takes a {@link com.jagrosh.jdautilities.commandclient.CommandUsageSnapshot CommandUsageSnapshot} of the uses of
+     * every {@link com.jagrosh.jdautilities.commandclient.Command Command} registered to this CommandClient.
+     *
+     * <p>The deltas of the snapshot are relative to the previous call of this method, so this should be
+     * called from a single place, such as a periodic task exporting usage statistics.
+     * <br>Taking a snapshot does not block or slow down the handling of commands.
+     *
+     * <p>By default, the snapshot is built from {@link #getCommandUses(Command)} for each Command, and has no deltas
+     * and an empty interval, as implementations that do not override this keep no previous snapshot.
+     *
+     * @return A snapshot of the uses of every Command
+     *
+     * @since  1.9
+     */
+    default CommandUsageSnapshot getCommandUsageSnapshot()
+    {
+        Map<String, Long> totals = new HashMap<>();
+        for(Command command : getCommands())
+            totals.put(command.getName(), (long) getCommandUses(command));
+        return new CommandUsageSnapshot(OffsetDateTime.now(), Duration.ZERO, totals, Collections.emptyMap());
+    }
     
     /**
      * Gets the ID of the owner of this bot as a String.
@@ -607,6 +625,80 @@ public interface CommandClient
     @Deprecated
     void cleanSchedule();
 
+    /**
+     * Removes any cached settings of the {@link net.dv8tion.jda.core.entities.Guild Guild} with the provided ID,
+     * causing them to be requested from the {@link com.jagrosh.jdautilities.commandclient.GuildSettingsProvider
+     * GuildSettingsProvider} again the next time they are needed.
+     *
+     * <p>This should be called whenever the settings of a Guild are changed, or the change will only take effect
+     * when the cached settings are refreshed.
+     * <br>If no GuildSettingsProvider was set, this does nothing. By default, this does nothing either, as
+     * implementations that do not cache Guild settings have nothing to remove.
+     *
+     * @param  guildId
+     *         The ID of the Guild
+     *
+     * @since  1.9
+     *
+     * @see    com.jagrosh.jdautilities.commandclient.CommandClientBuilder#setGuildSettingsProvider(GuildSettingsProvider)
+     */
+    default void invalidateGuildSettings(long guildId)
+    {
+        // nothing is cached without a GuildSettingsProvider
+    }
+
+    /**
+     * Gets the number of {@link com.jagrosh.jdautilities.commandclient.Command Command}s that have been handed to
+     * an {@link java.util.concurrent.Executor Executor}, but have not started running yet.
+     *
+     * <p>Commands that run on the event thread are never counted.
+     * <br>By default, this returns {@code 0}, for implementations that always run Commands on the event thread.
+     *
+     * @return The number of queued Commands
+     *
+     * @since  1.9
+     *
+     * @see    com.jagrosh.jdautilities.commandclient.CommandClientBuilder#setCommandExecutor(java.util.concurrent.Executor)
+     */
+    default int getQueuedCommands()
+    {
+        return 0;
+    }
+
+    /**
+     * Gets the total number of {@link com.jagrosh.jdautilities.commandclient.Command Command}s that were rejected
+     * by their {@link java.util.concurrent.Executor Executor} since this CommandClient was created.
+     * <br>By default, this returns {@code 0}, for implementations that always run Commands on the event thread.
+     *
+     * @return The number of rejected Commands
+     *
+     * @since  1.9
+     *
+     * @see    com.jagrosh.jdautilities.commandclient.CommandClientBuilder#setCommandExecutor(java.util.concurrent.Executor)
+     */
+    default long getRejectedCommands()
+    {
+        return 0L;
+    }
+
+    /**
+     * Gets the {@link com.jagrosh.jdautilities.commandclient.CommandMetrics CommandMetrics} of this CommandClient,
+     * holding the latency of each stage of dispatching {@link com.jagrosh.jdautilities.commandclient.Command Command}s
+     * and the number of Commands terminated for each reason since this CommandClient was created.
+     * <br>By default, this returns {@link com.jagrosh.jdautilities.commandclient.CommandMetrics#NONE CommandMetrics#NONE},
+     * which records nothing, for implementations that do not record metrics.
+     *
+     * @return The CommandMetrics of this CommandClient
+     *
+     * @since  1.9
+     *
+     * @see    com.jagrosh.jdautilities.commandclient.CommandClientBuilder#setMetricsExporter(MetricsExporter, long, java.util.concurrent.TimeUnit)
+     */
+    default CommandMetrics getMetrics()
+    {
+        return CommandMetrics.NONE;
+    }
+
     /**
      * Gets whether this CommandClient uses linked deletion.
      *
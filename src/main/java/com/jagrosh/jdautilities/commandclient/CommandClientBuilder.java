@@ -17,7 +17,9 @@ package com.jagrosh.jdautilities.commandclient;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import com.jagrosh.jdautilities.commandclient.impl.AnnotatedModuleCompilerImpl;
@@ -57,7 +59,19 @@ public class CommandClientBuilder
     private String helpWord;
     private ScheduledExecutorService executor;
     private int linkedCacheSize = 200;
+    private long linkedDeletionWindowMillis = 500;
     private AnnotatedModuleCompiler compiler = new AnnotatedModuleCompilerImpl();
+    private GuildSettingsProvider settingsProvider;
+    private int settingsCacheSize = 10000;
+    private long settingsRefreshMillis = TimeUnit.MINUTES.toMillis(5);
+    private int roleIndexSize = 10000;
+    private int topicTagCacheSize = 2048;
+    private Executor settingsExecutor;
+    private Executor commandExecutor;
+    private int maxCooldowns = 0;
+    private boolean rerunEditedCommands = false;
+    private MetricsExporter metricsExporter;
+    private long metricsExportPeriodMillis;
     
     /**
      * Builds a {@link com.jagrosh.jdautilities.commandclient.impl.CommandClientImpl CommandClientImpl} 
@@ -71,7 +85,10 @@ public class CommandClientBuilder
     {
         CommandClient client = new CommandClientImpl(ownerId, coOwnerIds, prefix, altprefix, game, status, serverInvite,
                 success, warning, error, carbonKey, botsKey, botsOrgKey, new ArrayList<>(commands), useHelp,
-                helpFunction, helpWord, executor, linkedCacheSize, compiler);
+                helpFunction, helpWord, executor, linkedCacheSize, compiler, settingsProvider, settingsCacheSize,
+                settingsExecutor, commandExecutor, maxCooldowns, rerunEditedCommands, metricsExporter, metricsExportPeriodMillis,
+                linkedDeletionWindowMillis, roleIndexSize, settingsRefreshMillis,
+                topicTagCacheSize);
         if(listener!=null)
             client.setListener(listener);
         return client;
@@ -552,7 +569,7 @@ public class CommandClientBuilder
     }
 
     /**
-     * Sets the internal size of the client's {@link com.jagrosh.jdautilities.entities.FixedSizeCache FixedSizeCache}
+     * Sets the internal size of the client's {@link com.jagrosh.jdautilities.entities.LongFixedSizeCache LongFixedSizeCache}
      * used for caching and pairing the bot's response {@link net.dv8tion.jda.core.entities.Message Message}s with
      * the calling Message's ID.
      *
@@ -573,4 +590,276 @@ public class CommandClientBuilder
         this.linkedCacheSize = linkedCacheSize;
         return this;
     }
+
+    /**
+     * Sets how long the responses of deleted calls are buffered for before they are deleted, when linked
+     * caching is used (see {@link #setLinkedCacheSize(int)}).
+     * <br>Default {@code 500} milliseconds.
+     *
+     * <p>Responses in the same channel that are buffered together are bulk deleted where possible, so a longer
+     * window means fewer requests when many calls are deleted at once, at the cost of responses lingering for longer.
+     * <br>Setting {@code 0} deletes responses as soon as their call is deleted.
+     *
+     * @param  window
+     *         The time to buffer responses for, must not be negative
+     * @param  unit
+     *         The unit of the window
+     *
+     * @return This builder
+     *
+     * @since  1.9
+     */
+    public CommandClientBuilder setLinkedDeletionWindow(long window, TimeUnit unit)
+    {
+        if(window<0)
+            throw new IllegalArgumentException("Linked deletion window cannot be negative!");
+        if(unit==null)
+            throw new IllegalArgumentException("Linked deletion window unit cannot be null!");
+        this.linkedDeletionWindowMillis = unit.toMillis(window);
+        return this;
+    }
+
+    /**
+     * Sets the {@link com.jagrosh.jdautilities.commandclient.GuildSettingsProvider GuildSettingsProvider}
+     * the built {@link com.jagrosh.jdautilities.commandclient.CommandClient CommandClient} will request
+     * per-{@link net.dv8tion.jda.core.entities.Guild Guild} prefixes from.
+     *
+     * <p>Guild prefixes are used in addition to the prefix and alternative prefix, and are cached by
+     * the client (see {@link #setGuildSettingsCacheSize(int)}), so the provider is not queried for
+     * every Message.
+     *
+     * @param  provider
+     *         The GuildSettingsProvider, or {@code null} to only use the default prefixes
+     *
+     * @return This builder
+     */
+    public CommandClientBuilder setGuildSettingsProvider(GuildSettingsProvider provider)
+    {
+        this.settingsProvider = provider;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of {@link net.dv8tion.jda.core.entities.Guild Guild}s whose settings are
+     * cached at once when a {@link com.jagrosh.jdautilities.commandclient.GuildSettingsProvider GuildSettingsProvider}
+     * is used.
+     * <br>Default {@code 10000}.
+     *
+     * <p>Higher cache size means fewer requests to the provider, at the cost of larger memory usage.
+     *
+     * @param  settingsCacheSize
+     *         The maximum number of Guilds to cache settings for, must be at least {@code 1}
+     *
+     * @return This builder
+     */
+    public CommandClientBuilder setGuildSettingsCacheSize(int settingsCacheSize)
+    {
+        this.settingsCacheSize = settingsCacheSize;
+        return this;
+    }
+
+    /**
+     * Sets how long the settings of a {@link net.dv8tion.jda.core.entities.Guild Guild} are cached for before
+     * they are loaded again from the {@link com.jagrosh.jdautilities.commandclient.GuildSettingsProvider
+     * GuildSettingsProvider}.
+     * <br>Default {@code 5} minutes.
+     *
+     * <p>Settings are reloaded in the background, and the cached settings keep being used until they are loaded.
+     * <br>Settings that are changed through the bot itself can be reloaded sooner with
+     * {@link com.jagrosh.jdautilities.commandclient.CommandClient#invalidateGuildSettings(long)
+     * CommandClient#invalidateGuildSettings(long)}, so this only bounds how long changes made elsewhere take to apply.
+     *
+     * @param  refresh
+     *         The time after which cached settings are reloaded, must be positive
+     * @param  unit
+     *         The unit of the refresh time
+     *
+     * @return This builder
+     *
+     * @since  1.9
+     */
+    public CommandClientBuilder setGuildSettingsRefresh(long refresh, TimeUnit unit)
+    {
+        if(refresh<=0)
+            throw new IllegalArgumentException("Settings refresh time must be positive!");
+        if(unit==null)
+            throw new IllegalArgumentException("Settings refresh time unit cannot be null!");
+        this.settingsRefreshMillis = Math.max(unit.toMillis(refresh), 1L);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of {@link net.dv8tion.jda.core.entities.Guild Guild}s whose
+     * {@link net.dv8tion.jda.core.entities.Role Role}s are indexed at once for checking the
+     * {@link com.jagrosh.jdautilities.commandclient.Command#requiredRole required roles} of
+     * {@link com.jagrosh.jdautilities.commandclient.Command Command}s.
+     * <br>Default {@code 10000}.
+     *
+     * <p>Guilds that have not used such a Command recently are removed first, and indexed again on their next use,
+     * so this should be about the number of Guilds that use Commands with required roles.
+     *
+     * @param  roleIndexSize
+     *         The maximum number of Guilds to index roles for, must be at least {@code 1}
+     *
+     * @return This builder
+     *
+     * @since  1.9
+     */
+    public CommandClientBuilder setRoleIndexSize(int roleIndexSize)
+    {
+        this.roleIndexSize = roleIndexSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of {@link net.dv8tion.jda.core.entities.TextChannel TextChannel}s whose parsed
+     * topic tags are cached at once for checking {@link com.jagrosh.jdautilities.commandclient.Command Command}s
+     * against them.
+     * <br>Default {@code 2048}.
+     *
+     * <p>Channels that have not had a Command called in them recently are removed first, and their topic is parsed
+     * again on their next call, so this should be about the number of channels Commands are actively used in.
+     *
+     * @param  topicTagCacheSize
+     *         The maximum number of channels to cache topic tags for, must be at least {@code 1}
+     *
+     * @return This builder
+     *
+     * @since  1.9
+     */
+    public CommandClientBuilder setTopicTagCacheSize(int topicTagCacheSize)
+    {
+        this.topicTagCacheSize = topicTagCacheSize;
+        return this;
+    }
+
+    /**
+     * Sets the {@link java.util.concurrent.Executor Executor} that settings are loaded from the
+     * {@link com.jagrosh.jdautilities.commandclient.GuildSettingsProvider GuildSettingsProvider} on.
+     *
+     * <p>By default, the client creates a single thread of its own for this, and shuts it down along with JDA.
+     * Settings are never loaded on the {@link #setScheduleExecutor(ScheduledExecutorService) ScheduledExecutorService},
+     * so a slow provider does not delay cooldown expiry, linked deletion or other scheduled tasks.
+     * <br>A provided Executor is not shut down by the client.
+     *
+     * @param  settingsExecutor
+     *         The Executor to load settings on, or {@code null} to use a thread created by the client
+     *
+     * @return This builder
+     *
+     * @since  1.9
+     */
+    public CommandClientBuilder setGuildSettingsExecutor(Executor settingsExecutor)
+    {
+        this.settingsExecutor = settingsExecutor;
+        return this;
+    }
+
+    /**
+     * Sets the {@link java.util.concurrent.Executor Executor} that
+     * {@link com.jagrosh.jdautilities.commandclient.Command Command}s are run on.
+     *
+     * <p>By default, Commands are run on the JDA event thread that received the call, meaning
+     * a single slow Command delays every event that follows it. Setting an Executor moves
+     * Commands off of the event thread, in which case the
+     * {@link com.jagrosh.jdautilities.commandclient.CommandListener#onCompletedCommand(CommandEvent, Command)
+     * CommandListener#onCompletedCommand} and {@link com.jagrosh.jdautilities.commandclient.CommandListener#onTerminatedCommand(CommandEvent, Command)
+     * CommandListener#onTerminatedCommand} are fired from the thread the Command ran on.
+     * <br>On Java 21 or higher, an Executor backed by virtual threads
+     * ({@code Executors.newVirtualThreadPerTaskExecutor()}) is well suited for Commands that block.
+     *
+     * <p>This can be overridden per Command with {@link com.jagrosh.jdautilities.commandclient.Command#executor Command.executor},
+     * or per {@link com.jagrosh.jdautilities.commandclient.Command.Category Category}.
+     * <br>If a Command is rejected by its Executor, it is reported as terminated from the event thread.
+     *
+     * @param  commandExecutor
+     *         The Executor to run Commands on, or {@code null} to run them on the event thread
+     *
+     * @return This builder
+     *
+     * @see    com.jagrosh.jdautilities.commandclient.CommandClient#getQueuedCommands()
+     * @see    com.jagrosh.jdautilities.commandclient.CommandClient#getRejectedCommands()
+     */
+    public CommandClientBuilder setCommandExecutor(Executor commandExecutor)
+    {
+        this.commandExecutor = commandExecutor;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of cooldowns the built {@link com.jagrosh.jdautilities.commandclient.CommandClient
+     * CommandClient} stores at once.
+     * <br>Default {@code 0} (no maximum).
+     *
+     * <p>Expired cooldowns are removed automatically every second on the client's
+     * {@link java.util.concurrent.ScheduledExecutorService ScheduledExecutorService}, so this only bounds the
+     * number of cooldowns that are active at the same time.
+     * <br>Once the maximum is reached, the cooldowns closest to expiring are removed to make room for new ones.
+     *
+     * @param  maxCooldowns
+     *         The maximum number of cooldowns, or {@code 0} or less for no maximum
+     *
+     * @return This builder
+     */
+    public CommandClientBuilder setMaxCooldowns(int maxCooldowns)
+    {
+        this.maxCooldowns = maxCooldowns;
+        return this;
+    }
+
+    /**
+     * Sets whether {@link com.jagrosh.jdautilities.commandclient.Command Command}s are run again when their
+     * call {@link net.dv8tion.jda.core.entities.Message Message} is edited.
+     *
+     * <p>When enabled, editing a call that was responded to re-runs it, and the replies of the re-run
+     * edit the responses to the previous run in place instead of sending new Messages (see
+     * {@link com.jagrosh.jdautilities.commandclient.CommandEvent#isEdited() CommandEvent#isEdited()}).
+     * <br>This uses the responses tracked for linked deletion, so it has no effect unless linked deletion is used
+     * (see {@link #setLinkedCacheSize(int)}), and calls whose responses are no longer cached are not re-run.
+     * Responses the re-run no longer needs are left as they are.
+     * <br>Re-runs skip the cooldown and are not counted as uses, since the original call already was. Default {@code false}.
+     *
+     * @param  rerunEditedCommands
+     *         {@code true} to re-run edited calls
+     *
+     * @return This builder
+     *
+     * @since  1.9
+     */
+    public CommandClientBuilder setRerunEditedCommands(boolean rerunEditedCommands)
+    {
+        this.rerunEditedCommands = rerunEditedCommands;
+        return this;
+    }
+
+    /**
+     * Sets a {@link com.jagrosh.jdautilities.commandclient.MetricsExporter MetricsExporter} the
+     * {@link com.jagrosh.jdautilities.commandclient.CommandMetrics CommandMetrics} of the CommandClient are
+     * periodically exported to.
+     *
+     * <p>The exporter is called on the {@link #setScheduleExecutor(ScheduledExecutorService) ScheduledExecutorService}
+     * of the CommandClient. Metrics are recorded whether or not an exporter is set, and can always be read with
+     * {@link com.jagrosh.jdautilities.commandclient.CommandClient#getMetrics() CommandClient#getMetrics()}.
+     *
+     * @param  exporter
+     *         The MetricsExporter, or {@code null} to not export periodically
+     * @param  period
+     *         The time between exports, ignored if the exporter is {@code null}
+     * @param  unit
+     *         The unit of the period, may be {@code null} if the exporter is
+     *
+     * @return This builder
+     *
+     * @since  1.9
+     */
+    public CommandClientBuilder setMetricsExporter(MetricsExporter exporter, long period, TimeUnit unit)
+    {
+        if(exporter!=null && period<=0)
+            throw new IllegalArgumentException("Export period must be positive!");
+        if(exporter!=null && unit==null)
+            throw new IllegalArgumentException("Export period unit cannot be null!");
+        this.metricsExporter = exporter;
+        this.metricsExportPeriodMillis = exporter==null ? 0L : Math.max(unit.toMillis(period), 1L);
+        return this;
+    }
 }
@@ -16,6 +16,7 @@
 package com.jagrosh.jdautilities.commandclient;
 
 import java.io.File;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.function.Consumer;
 import com.jagrosh.jdautilities.commandclient.impl.CommandClientImpl;
@@ -25,6 +26,7 @@ import net.dv8tion.jda.core.MessageBuilder;
 import net.dv8tion.jda.core.entities.*;
 import net.dv8tion.jda.core.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.core.exceptions.PermissionException;
+import net.dv8tion.jda.core.requests.RestAction;
 
 /**
  * A wrapper class for a {@link net.dv8tion.jda.core.events.message.MessageReceivedEvent MessageReceivedEvent},
@@ -47,8 +49,14 @@ public class CommandEvent
     public static int MAX_MESSAGES = 2;
     
     private final MessageReceivedEvent event;
+    private String content;
+    private int argsStart;
+    private int argsEnd;
     private String args;
     private final CommandClient client;
+    // channel and message IDs of responses to an earlier run of an edited call, in pairs, reused in order
+    private final long[] editable;
+    private boolean[] edited;
     
     /**
      * Constructor for a CommandEvent.
@@ -66,25 +74,136 @@ public class CommandEvent
     public CommandEvent(MessageReceivedEvent event, String args, CommandClient client)
     {
         this.event = event;
-        this.args = args == null ? "" : args;
         this.client = client;
+        this.editable = null;
+        setArgs(args == null ? "" : args);
+    }
+
+    /**
+     * Constructor for a CommandEvent whose arguments are a region of the raw content
+     * of the calling {@link net.dv8tion.jda.core.entities.Message Message}.
+     *
+     * <p><b>You should not call this!</b>
+     * <br>It is a generated wrapper for a {@link net.dv8tion.jda.core.events.message.MessageReceivedEvent MessageReceivedEvent}.
+     *
+     * @param  event
+     *         The initial MessageReceivedEvent
+     * @param  argsStart
+     *         The index of the raw content the arguments start at, inclusive
+     * @param  argsEnd
+     *         The index of the raw content the arguments end at, exclusive
+     * @param  client
+     *         The {@link com.jagrosh.jdautilities.commandclient.CommandClient CommandClient}
+     */
+    public CommandEvent(MessageReceivedEvent event, int argsStart, int argsEnd, CommandClient client)
+    {
+        this(event, argsStart, argsEnd, client, null);
+    }
+
+    /**
+     * Constructor for a CommandEvent of a call {@link net.dv8tion.jda.core.entities.Message Message} that was edited,
+     * whose replies edit the responses to the previous run of the call instead of sending new Messages.
+     *
+     * <p><b>You should not call this!</b>
+     * <br>It is a generated wrapper for a {@link net.dv8tion.jda.core.events.message.MessageReceivedEvent MessageReceivedEvent}.
+     *
+     * @param  event
+     *         The initial MessageReceivedEvent
+     * @param  argsStart
+     *         The index of the raw content the arguments start at, inclusive
+     * @param  argsEnd
+     *         The index of the raw content the arguments end at, exclusive
+     * @param  client
+     *         The {@link com.jagrosh.jdautilities.commandclient.CommandClient CommandClient}
+     * @param  editable
+     *         The channel and Message IDs of the previous responses, in pairs, or {@code null} if the call was not edited
+     *
+     * @since  1.9
+     */
+    public CommandEvent(MessageReceivedEvent event, int argsStart, int argsEnd, CommandClient client, long[] editable)
+    {
+        this.event = event;
+        this.client = client;
+        this.editable = editable;
+        setArgs(event.getMessage().getContentRaw(), argsStart, argsEnd);
+    }
+
+    /**
+     * Checks if this CommandEvent is a re-run of a call {@link net.dv8tion.jda.core.entities.Message Message}
+     * that was edited.
+     *
+     * <p>While it is, replies edit the responses to the previous run in place, in the order they were sent,
+     * and only send new Messages once those run out. Replies with files always send new Messages.
+     * <br>A re-run is not put on cooldown, nor counted as another use of the Command, as the call it
+     * corrects already was.
+     *
+     * @return {@code true} if the call was edited
+     *
+     * @see    com.jagrosh.jdautilities.commandclient.CommandClientBuilder#setRerunEditedCommands(boolean)
+     *
+     * @since  1.9
+     */
+    public boolean isEdited()
+    {
+        return editable != null;
     }
     
     /**
      * Returns the user's String arguments for the command.
      * <br>If no arguments have been supplied, then this will return an empty String.
+     *
+     * <p>The String is only created the first time this is called, Commands that only need to
+     * inspect their arguments may use {@link #getArgsView()} instead.
      * 
      * @return Never-null arguments that a user has supplied to a command
      */
     public String getArgs()
     {
+        if(args == null)
+            args = content.substring(argsStart, argsEnd);
         return args;
     }
+
+    /**
+     * Returns a read-only view of the user's arguments for the command.
+     * <br>Unlike {@link #getArgs()}, the view is backed by the raw content of the calling
+     * {@link net.dv8tion.jda.core.entities.Message Message} and does not copy it.
+     *
+     * @return A never-null view of the arguments that a user has supplied to a command
+     */
+    public CharSequence getArgsView()
+    {
+        return CharBuffer.wrap(content, argsStart, argsEnd);
+    }
+
+    String getArgsContent()
+    {
+        return content;
+    }
+
+    int getArgsStart()
+    {
+        return argsStart;
+    }
+
+    int getArgsEnd()
+    {
+        return argsEnd;
+    }
     
     void setArgs(String args)
     {
+        setArgs(args, 0, args.length());
         this.args = args;
     }
+
+    void setArgs(String content, int argsStart, int argsEnd)
+    {
+        this.content = content;
+        this.argsStart = argsStart;
+        this.argsEnd = Math.max(argsStart, argsEnd);
+        this.args = null;
+    }
     
     /**
      * Returns the underlying {@link net.dv8tion.jda.core.events.message.MessageReceivedEvent MessageReceivedEvent}
@@ -194,7 +313,7 @@ public class CommandEvent
      */
     public void reply(MessageEmbed embed)
     {
-        event.getChannel().sendMessage(embed).queue(m -> {
+        queue(respond(event.getChannel(), embed), m -> {
             if(event.isFromType(ChannelType.TEXT) && client.usesLinkedDeletion())
                 linkId(m);
         });
@@ -216,7 +335,7 @@ public class CommandEvent
      */
     public void reply(MessageEmbed embed, Consumer<Message> queue)
     {
-    	event.getChannel().sendMessage(embed).queue(m -> {
+    	queue(respond(event.getChannel(), embed), m -> {
     	    if(event.isFromType(ChannelType.TEXT) && client.usesLinkedDeletion())
     	        linkId(m);
     	    queue.accept(m);
@@ -235,7 +354,7 @@ public class CommandEvent
      */
     public void reply(Message message)
     {
-        event.getChannel().sendMessage(message).queue(m -> {
+        queue(respond(event.getChannel(), message), m -> {
             if(event.isFromType(ChannelType.TEXT) && client.usesLinkedDeletion())
                 linkId(m);
         });
@@ -257,7 +376,7 @@ public class CommandEvent
      */
     public void reply(Message message, Consumer<Message> queue)
     {
-        event.getChannel().sendMessage(message).queue(m -> {
+        queue(respond(event.getChannel(), message), m -> {
             if(event.isFromType(ChannelType.TEXT) && client.usesLinkedDeletion())
                 linkId(m);
             queue.accept(m);
@@ -695,12 +814,59 @@ public class CommandEvent
         }
     }
     
+    private RestAction<Message> respond(MessageChannel chan, String message)
+    {
+        long id = nextEditable(chan);
+        return id==0L ? chan.sendMessage(message) : chan.editMessageById(id, message);
+    }
+
+    private RestAction<Message> respond(MessageChannel chan, MessageEmbed embed)
+    {
+        long id = nextEditable(chan);
+        return id==0L ? chan.sendMessage(embed) : chan.editMessageById(id, embed);
+    }
+
+    private RestAction<Message> respond(MessageChannel chan, Message message)
+    {
+        long id = nextEditable(chan);
+        return id==0L ? chan.sendMessage(message) : chan.editMessageById(id, message);
+    }
+
+    // Queues a response, recording how long it takes to be sent or edited
+    private void queue(RestAction<Message> response, Consumer<Message> success)
+    {
+        CommandMetrics metrics = client.getMetrics();
+        long start = System.nanoTime();
+        response.queue(m -> {
+            metrics.record(CommandMetrics.Stage.REPLY, start);
+            success.accept(m);
+        });
+    }
+
+    // Claims the next previous response in the channel, or returns 0 if there is none left
+    private synchronized long nextEditable(MessageChannel chan)
+    {
+        if(editable==null)
+            return 0L;
+        if(edited==null)
+            edited = new boolean[editable.length / 2];
+        for(int i = 0; i < edited.length; i++)
+        {
+            if(!edited[i] && editable[i * 2]==chan.getIdLong())
+            {
+                edited[i] = true;
+                return editable[i * 2 + 1];
+            }
+        }
+        return 0L;
+    }
+    
     private void sendMessage(MessageChannel chan, String message)
     {
         ArrayList<String> messages = splitMessage(message);
         for(int i=0; i<MAX_MESSAGES && i<messages.size(); i++)
         {
-            chan.sendMessage(messages.get(i)).queue(m -> {
+            queue(respond(chan, messages.get(i)), m -> {
                 if(event.isFromType(ChannelType.TEXT) && client.usesLinkedDeletion())
                     linkId(m);
             });
@@ -713,13 +879,13 @@ public class CommandEvent
         for(int i=0; i<MAX_MESSAGES && i<messages.size(); i++)
         {
             if(i+1==MAX_MESSAGES || i+1==messages.size())
-                chan.sendMessage(messages.get(i)).queue(m -> {
+                queue(respond(chan, messages.get(i)), m -> {
                     if(event.isFromType(ChannelType.TEXT) && client.usesLinkedDeletion())
                         linkId(m);
                     queue.accept(m);
                 });
             else
-                chan.sendMessage(messages.get(i)).queue(m -> {
+                queue(respond(chan, messages.get(i)), m -> {
                     if(event.isFromType(ChannelType.TEXT) && client.usesLinkedDeletion())
                         linkId(m);
                 });
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The latencies and terminations of the {@link com.jagrosh.jdautilities.commandclient.Command Command}s
+ * dispatched by a {@link com.jagrosh.jdautilities.commandclient.CommandClient CommandClient}.
+ *
+ * <p>The latency of each {@link com.jagrosh.jdautilities.commandclient.CommandMetrics.Stage Stage} a message
+ * goes through is recorded in a {@link com.jagrosh.jdautilities.commandclient.LatencyHistogram LatencyHistogram},
+ * and each Command that is terminated is counted by its
+ * {@link com.jagrosh.jdautilities.commandclient.CommandMetrics.TerminationReason TerminationReason}.
+ * <br>Metrics can be handed to a {@link com.jagrosh.jdautilities.commandclient.MetricsExporter MetricsExporter}
+ * on demand using {@link #export(MetricsExporter)}, or periodically by setting one with
+ * {@link com.jagrosh.jdautilities.commandclient.CommandClientBuilder#setMetricsExporter(MetricsExporter, long,
+ * java.util.concurrent.TimeUnit) CommandClientBuilder#setMetricsExporter(MetricsExporter, long, TimeUnit)}.
+ *
+ * @since  1.9
+ *
+ * @see    com.jagrosh.jdautilities.commandclient.CommandClient#getMetrics()
+ */
+public final class CommandMetrics
+{
+    /**
+     * A CommandMetrics that records nothing, and so always stays empty.
+     * <br>This is returned by default by {@link com.jagrosh.jdautilities.commandclient.CommandClient#getMetrics()
+     * CommandClient#getMetrics()} for implementations that do not record metrics.
+     */
+    public static final CommandMetrics NONE = new CommandMetrics(false);
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Stage.values().length];
+    private final AtomicLongArray terminations = new AtomicLongArray(TerminationReason.values().length);
+    private final boolean recording;
+
+    /**
+     * Constructs an empty CommandMetrics.
+     */
+    public CommandMetrics()
+    {
+        this(true);
+    }
+
+    private CommandMetrics(boolean recording)
+    {
+        this.recording = recording;
+        for(int i = 0; i < latencies.length; i++)
+            latencies[i] = new LatencyHistogram();
+    }
+
+    /**
+     * Gets the latencies recorded for a stage of dispatch.
+     *
+     * @param  stage
+     *         The stage
+     *
+     * @return The LatencyHistogram of the stage
+     */
+    public LatencyHistogram getLatency(Stage stage)
+    {
+        return latencies[stage.ordinal()];
+    }
+
+    /**
+     * Gets the number of Commands terminated for a reason.
+     *
+     * @param  reason
+     *         The reason
+     *
+     * @return The number of Commands terminated for the reason
+     */
+    public long getTerminations(TerminationReason reason)
+    {
+        return terminations.get(reason.ordinal());
+    }
+
+    /**
+     * Hands these metrics to a {@link com.jagrosh.jdautilities.commandclient.MetricsExporter MetricsExporter}.
+     *
+     * @param  exporter
+     *         The MetricsExporter
+     */
+    public void export(MetricsExporter exporter)
+    {
+        exporter.export(this);
+    }
+
+    /**
+     * <b>DO NOT USE THIS!</b>
+     *
+     * <p>This is a method necessary for recording the latency of a stage of dispatch.
+     * <br><b>Using this anywhere in your code can and will break your bot.</b>
+     *
+     * @param  stage
+     *         The stage
+     * @param  start
+     *         The {@link System#nanoTime()} the stage started at
+     */
+    public void record(Stage stage, long start)
+    {
+        if(!recording)
+            return;
+        latencies[stage.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * <b>DO NOT USE THIS!</b>
+     *
+     * <p>This is a method necessary for counting the terminations of Commands.
+     * <br><b>Using this anywhere in your code can and will break your bot.</b>
+     *
+     * @param  reason
+     *         The reason the Command was terminated
+     */
+    public void terminated(TerminationReason reason)
+    {
+        if(!recording)
+            return;
+        terminations.incrementAndGet(reason.ordinal());
+    }
+
+    /**
+     * The stages a message goes through when it is dispatched as a Command.
+     */
+    public enum Stage
+    {
+        /**
+         * Matching the prefixes against a message, recorded for messages that start with a prefix.
+         * <br>Not recorded again when an edited call is re-run.
+         */
+        PREFIX,
+
+        /**
+         * Finding the Command a message with a prefix calls.
+         * <br>Not recorded again when an edited call is re-run.
+         */
+        ROUTING,
+
+        /**
+         * Checking the requirements and cooldown of a Command.
+         */
+        REQUIREMENTS,
+
+        /**
+         * Running {@link com.jagrosh.jdautilities.commandclient.Command#execute(CommandEvent) Command#execute(CommandEvent)}.
+         */
+        EXECUTION,
+
+        /**
+         * Sending or editing a reply through a {@link com.jagrosh.jdautilities.commandclient.CommandEvent CommandEvent},
+         * from queueing it until Discord acknowledges it.
+         */
+        REPLY
+    }
+
+    /**
+     * The reasons a Command is terminated before it is executed.
+     */
+    public enum TerminationReason
+    {
+        /**
+         * The Command is for owners only.
+         */
+        OWNER,
+
+        /**
+         * The {@link com.jagrosh.jdautilities.commandclient.Command.Category Category} of the Command did not allow it.
+         */
+        CATEGORY,
+
+        /**
+         * The topic tags of the channel did not allow the Command.
+         */
+        TOPIC_TAGS,
+
+        /**
+         * The member did not have a required role.
+         */
+        ROLE,
+
+        /**
+         * The bot was missing a required permission, or the member was not in a voice channel.
+         */
+        BOT_PERMISSIONS,
+
+        /**
+         * The member was missing a required permission.
+         */
+        USER_PERMISSIONS,
+
+        /**
+         * The Command is for guilds only.
+         */
+        GUILD_ONLY,
+
+        /**
+         * The Command was on cooldown.
+         */
+        COOLDOWN,
+
+        /**
+         * The {@link java.util.concurrent.Executor Executor} of the Command rejected it.
+         */
+        REJECTED
+    }
+}
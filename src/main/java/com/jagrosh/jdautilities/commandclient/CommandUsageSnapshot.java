@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the number of uses of each {@link com.jagrosh.jdautilities.commandclient.Command Command}
+ * registered to a {@link com.jagrosh.jdautilities.commandclient.CommandClient CommandClient}.
+ *
+ * <p>Alongside the total number of uses of each Command, a snapshot contains the number of uses since the previous
+ * snapshot taken from the same CommandClient, making it suitable for periodic scraping.
+ * <br>Counts are read without stopping the client, so each count is exact at some point while the snapshot is taken,
+ * but counts of different Commands may be read a few uses apart.
+ *
+ * @since  1.9
+ *
+ * @see    com.jagrosh.jdautilities.commandclient.CommandClient#getCommandUsageSnapshot()
+ */
+public class CommandUsageSnapshot
+{
+    private final OffsetDateTime time;
+    private final Duration interval;
+    private final Map<String, Long> totals;
+    private final Map<String, Long> deltas;
+
+    /**
+     * Constructs a CommandUsageSnapshot.
+     *
+     * @param  time
+     *         The time the snapshot was taken
+     * @param  interval
+     *         The time since the previous snapshot was taken
+     * @param  totals
+     *         The total uses of each Command, by name
+     * @param  deltas
+     *         The uses of each Command since the previous snapshot, by name
+     */
+    public CommandUsageSnapshot(OffsetDateTime time, Duration interval, Map<String, Long> totals, Map<String, Long> deltas)
+    {
+        this.time = time;
+        this.interval = interval;
+        this.totals = Collections.unmodifiableMap(totals);
+        this.deltas = Collections.unmodifiableMap(deltas);
+    }
+
+    /**
+     * Gets the time this snapshot was taken.
+     *
+     * @return The time this snapshot was taken
+     */
+    public OffsetDateTime getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Gets the time between the previous snapshot and this one, or since the
+     * CommandClient was started if this is the first snapshot.
+     *
+     * @return The interval covered by the deltas of this snapshot
+     */
+    public Duration getInterval()
+    {
+        return interval;
+    }
+
+    /**
+     * Gets the total number of uses of each Command during this session, keyed by the name of the Command.
+     *
+     * @return An unmodifiable Map of Command names to total uses
+     */
+    public Map<String, Long> getTotals()
+    {
+        return totals;
+    }
+
+    /**
+     * Gets the number of uses of each Command since the previous snapshot, keyed by the name of the Command.
+     *
+     * @return An unmodifiable Map of Command names to uses during the interval
+     */
+    public Map<String, Long> getDeltas()
+    {
+        return deltas;
+    }
+
+    /**
+     * Gets the total number of uses of the Command with the provided name.
+     *
+     * @param  name
+     *         The name of the Command
+     *
+     * @return The total number of uses, or {@code 0} if no Command has the name
+     */
+    public long getUses(String name)
+    {
+        return totals.getOrDefault(name, 0L);
+    }
+
+    /**
+     * Gets the number of uses of the Command with the provided name since the previous snapshot.
+     *
+     * @param  name
+     *         The name of the Command
+     *
+     * @return The number of uses during the interval, or {@code 0} if no Command has the name
+     */
+    public long getDelta(String name)
+    {
+        return deltas.getOrDefault(name, 0L);
+    }
+}
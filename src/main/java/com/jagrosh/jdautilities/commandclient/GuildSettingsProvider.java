@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient;
+
+import java.util.Collection;
+
+/**
+ * An implementable source of per-{@link net.dv8tion.jda.core.entities.Guild Guild} settings
+ * for a {@link com.jagrosh.jdautilities.commandclient.CommandClient CommandClient}.
+ *
+ * <p>Settings are requested by the client through a bounded cache, and are always loaded
+ * away from the JDA event thread, meaning implementations are free to perform blocking
+ * operations such as database queries.
+ * <br>Until the settings of a Guild have been loaded for the first time, Messages from that
+ * Guild are only checked against the client's default prefixes.
+ *
+ * <p>Once loaded, the settings are reused until they are refreshed in the background, or
+ * until they are invalidated using {@link com.jagrosh.jdautilities.commandclient.CommandClient#invalidateGuildSettings(long)
+ * CommandClient#invalidateGuildSettings(long)}, which should be called whenever the settings of a Guild are changed.
+ *
+ * @since  1.9
+ *
+ * @see    com.jagrosh.jdautilities.commandclient.CommandClientBuilder#setGuildSettingsProvider(GuildSettingsProvider)
+ */
+public interface GuildSettingsProvider
+{
+    /**
+     * Gets the prefixes the Guild with the provided ID uses in addition to the
+     * client's default prefix and alternative prefix.
+     *
+     * @param  guildId
+     *         The ID of the Guild
+     *
+     * @return A possibly-null or empty Collection of prefixes, in which case the Guild
+     *         will only use the client's default prefixes
+     */
+    Collection<String> getPrefixes(long guildId);
+}
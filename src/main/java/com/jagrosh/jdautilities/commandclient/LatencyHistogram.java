@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of latencies in nanoseconds, recording each latency without locking or allocating.
+ *
+ * <p>Like an HdrHistogram, latencies are counted in buckets whose width grows with their magnitude: every power
+ * of two is split into {@value #SUB_BUCKETS} equal buckets, so a recorded latency is off by at most about 3%.
+ * <br>Counts are read without stopping recording, so values read while latencies are recorded may be a few
+ * recordings apart from each other.
+ *
+ * @since  1.9
+ *
+ * @see    com.jagrosh.jdautilities.commandclient.CommandMetrics
+ */
+public final class LatencyHistogram
+{
+    static final int SUB_BUCKETS = 32;
+    private static final int SUB_BUCKET_BITS = 5;
+    // latencies below twice the number of sub-buckets are counted exactly
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Records a latency.
+     *
+     * @param  nanos
+     *         The latency in nanoseconds, negative latencies are recorded as {@code 0}
+     */
+    public void record(long nanos)
+    {
+        if(nanos<0)
+            nanos = 0;
+        counts.incrementAndGet(indexOf(nanos));
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Gets the number of recorded latencies.
+     *
+     * @return The number of recorded latencies
+     */
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    /**
+     * Gets the sum of all recorded latencies.
+     *
+     * @return The sum of all recorded latencies, in nanoseconds
+     */
+    public long getSum()
+    {
+        return sum.sum();
+    }
+
+    /**
+     * Gets the highest recorded latency.
+     *
+     * @return The highest recorded latency in nanoseconds, or {@code 0} if none were recorded
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * Gets the mean of the recorded latencies.
+     *
+     * @return The mean of the recorded latencies in nanoseconds, or {@code 0} if none were recorded
+     */
+    public double getMean()
+    {
+        long n = count.sum();
+        return n==0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Gets the latency at a percentile of the recorded latencies.
+     *
+     * @param  percentile
+     *         The percentile, between {@code 0} and {@code 100}
+     *
+     * @return The highest latency counted in the same bucket as the latency at the percentile, in nanoseconds,
+     *         or {@code 0} if none were recorded
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        if(percentile<0 || percentile>100)
+            throw new IllegalArgumentException("Percentile must be between 0 and 100!");
+        long total = 0;
+        for(int i = 0; i < BUCKETS; i++)
+            total += counts.get(i);
+        if(total==0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts.get(i);
+            if(seen>=rank)
+                return Math.min(highestValueOf(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Gets the number of recorded latencies no higher than a latency.
+     *
+     * <p>Latencies counted in the same bucket as the given latency are all included, so the count may include
+     * latencies up to about 3% higher.
+     *
+     * @param  nanos
+     *         The latency in nanoseconds
+     *
+     * @return The number of recorded latencies no higher than the latency
+     */
+    public long getCountAtOrBelow(long nanos)
+    {
+        if(nanos<0)
+            return 0;
+        int last = indexOf(nanos);
+        long total = 0;
+        for(int i = 0; i <= last; i++)
+            total += counts.get(i);
+        return total;
+    }
+
+    static int indexOf(long nanos)
+    {
+        if(nanos<LINEAR_LIMIT)
+            return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (nanos >>> shift) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + sub;
+    }
+
+    static long highestValueOf(int index)
+    {
+        if(index<LINEAR_LIMIT)
+            return index;
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        long lowest = (SUB_BUCKETS + sub) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient;
+
+/**
+ * An exporter of {@link com.jagrosh.jdautilities.commandclient.CommandMetrics CommandMetrics}, such as to a
+ * monitoring system.
+ *
+ * <p>Exporters set with {@link com.jagrosh.jdautilities.commandclient.CommandClientBuilder#setMetricsExporter(
+ * MetricsExporter, long, java.util.concurrent.TimeUnit) CommandClientBuilder#setMetricsExporter(MetricsExporter,
+ * long, TimeUnit)} are called periodically on the client's scheduler, and should not block it for long.
+ *
+ * @since  1.9
+ *
+ * @see    com.jagrosh.jdautilities.commandclient.PrometheusTextExporter
+ */
+@FunctionalInterface
+public interface MetricsExporter
+{
+    /**
+     * Exports the current state of a CommandMetrics.
+     *
+     * @param  metrics
+     *         The CommandMetrics to export
+     */
+    void export(CommandMetrics metrics);
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient;
+
+import java.util.Locale;
+
+/**
+ * A {@link com.jagrosh.jdautilities.commandclient.MetricsExporter MetricsExporter} that formats
+ * {@link com.jagrosh.jdautilities.commandclient.CommandMetrics CommandMetrics} in the Prometheus text exposition
+ * format, without serving them.
+ *
+ * <p>The text of the latest export can be retrieved with {@link #getText()}, for example to be served by the
+ * bot's own HTTP endpoint, or {@link #format(CommandMetrics)} can be used to format metrics directly.
+ * <br>Stage latencies are exported as a histogram in seconds, and terminations as a counter per reason.
+ *
+ * @since  1.9
+ */
+public class PrometheusTextExporter implements MetricsExporter
+{
+    private static final String LATENCY = "jdautilities_command_stage_seconds";
+    private static final String TERMINATIONS = "jdautilities_command_terminations_total";
+    // bucket bounds in nanoseconds, from 100 microseconds to 10 seconds
+    private static final long[] BOUNDS = {
+        100_000L, 500_000L, 1_000_000L, 5_000_000L, 10_000_000L, 50_000_000L,
+        100_000_000L, 500_000_000L, 1_000_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+
+    private volatile String text = "";
+
+    @Override
+    public void export(CommandMetrics metrics)
+    {
+        text = format(metrics);
+    }
+
+    /**
+     * Gets the text of the latest export.
+     *
+     * @return The text of the latest export, or an empty String if nothing has been exported yet
+     */
+    public String getText()
+    {
+        return text;
+    }
+
+    /**
+     * Formats CommandMetrics in the Prometheus text exposition format.
+     *
+     * @param  metrics
+     *         The CommandMetrics to format
+     *
+     * @return The formatted CommandMetrics
+     */
+    public static String format(CommandMetrics metrics)
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("# HELP ").append(LATENCY).append(" Latency of each stage of command dispatch.\n");
+        builder.append("# TYPE ").append(LATENCY).append(" histogram\n");
+        for(CommandMetrics.Stage stage : CommandMetrics.Stage.values())
+        {
+            LatencyHistogram histogram = metrics.getLatency(stage);
+            String label = stage.name().toLowerCase(Locale.ROOT);
+            // buckets are capped at the count read first, so none is ever higher than +Inf
+            long count = histogram.getCount();
+            for(long bound : BOUNDS)
+            {
+                builder.append(LATENCY).append("_bucket{stage=\"").append(label).append("\",le=\"")
+                       .append(seconds(bound)).append("\"} ")
+                       .append(Math.min(histogram.getCountAtOrBelow(bound), count)).append('\n');
+            }
+            builder.append(LATENCY).append("_bucket{stage=\"").append(label).append("\",le=\"+Inf\"} ")
+                   .append(count).append('\n');
+            builder.append(LATENCY).append("_sum{stage=\"").append(label).append("\"} ")
+                   .append(seconds(histogram.getSum())).append('\n');
+            builder.append(LATENCY).append("_count{stage=\"").append(label).append("\"} ")
+                   .append(count).append('\n');
+        }
+        builder.append("# HELP ").append(TERMINATIONS).append(" Commands terminated before execution, by reason.\n");
+        builder.append("# TYPE ").append(TERMINATIONS).append(" counter\n");
+        for(CommandMetrics.TerminationReason reason : CommandMetrics.TerminationReason.values())
+        {
+            builder.append(TERMINATIONS).append("{reason=\"").append(reason.name().toLowerCase(Locale.ROOT))
+                   .append("\"} ").append(metrics.getTerminations(reason)).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static String seconds(long nanos)
+    {
+        return Double.toString(nanos / 1_000_000_000.0);
+    }
+}
@@ -97,6 +97,15 @@ public @interface JDACommand
      */
     String requiredRole() default "";
 
+    /**
+     * The names of roles, any one of which allows using this command.
+     *
+     * @return The names of roles, any one of which allows using this command.
+     *
+     * @since  1.9
+     */
+    String[] requiredRoles() default {};
+
     /**
      * Whether or not the command is owner only.
      * <br>Default {@code true}.
@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -116,6 +117,10 @@ public class AnnotatedModuleCompilerImpl implements AnnotatedModuleCompiler
         // Required Role
         builder.setRequiredRole(properties.requiredRole().trim().isEmpty()? null : properties.requiredRole().trim());
 
+        // Required Roles
+        builder.setRequiredRoles(Arrays.stream(properties.requiredRoles()).map(String::trim)
+                .filter(role -> !role.isEmpty()).toArray(String[]::new));
+
         // Owner Command
         builder.setOwnerCommand(properties.ownerCommand());
 
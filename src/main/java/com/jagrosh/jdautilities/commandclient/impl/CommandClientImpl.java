@@ -17,22 +17,28 @@ package com.jagrosh.jdautilities.commandclient.impl;
 
 import com.jagrosh.jdautilities.commandclient.*;
 import com.jagrosh.jdautilities.commandclient.Command.Category;
-import com.jagrosh.jdautilities.entities.FixedSizeCache;
+import com.jagrosh.jdautilities.entities.LongFixedSizeCache;
 import com.jagrosh.jdautilities.utils.SafeIdUtil;
 import net.dv8tion.jda.core.JDA;
 import net.dv8tion.jda.core.OnlineStatus;
-import net.dv8tion.jda.core.Permission;
 import net.dv8tion.jda.core.entities.ChannelType;
 import net.dv8tion.jda.core.entities.Game;
 import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.MessageChannel;
 import net.dv8tion.jda.core.entities.User;
 import net.dv8tion.jda.core.entities.impl.JDAImpl;
 import net.dv8tion.jda.core.events.ReadyEvent;
 import net.dv8tion.jda.core.events.ShutdownEvent;
+import net.dv8tion.jda.core.events.channel.text.TextChannelDeleteEvent;
+import net.dv8tion.jda.core.events.channel.text.update.TextChannelUpdateTopicEvent;
 import net.dv8tion.jda.core.events.guild.GuildJoinEvent;
 import net.dv8tion.jda.core.events.guild.GuildLeaveEvent;
 import net.dv8tion.jda.core.events.message.MessageDeleteEvent;
 import net.dv8tion.jda.core.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.core.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.core.events.role.RoleCreateEvent;
+import net.dv8tion.jda.core.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.core.events.role.update.RoleUpdateNameEvent;
 import net.dv8tion.jda.core.hooks.ListenerAdapter;
 import net.dv8tion.jda.core.requests.Requester;
 import net.dv8tion.jda.core.requests.RestAction;
@@ -45,13 +51,18 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.time.Duration;
 import java.time.OffsetDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
@@ -69,8 +80,8 @@ import java.util.stream.Collectors;
 public class CommandClientImpl extends ListenerAdapter implements CommandClient
 {
     private static final Logger LOG = LoggerFactory.getLogger(CommandClient.class);
-    private static final int INDEX_LIMIT = 20;
     private static final String DEFAULT_PREFIX = "@mention";
+    private static final long COOLDOWN_SWEEP_SECONDS = 1;
 
     private final OffsetDateTime start;
     private final Game game;
@@ -80,7 +91,7 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
     private final String prefix;
     private final String altprefix;
     private final String serverInvite;
-    private final HashMap<String, Integer> commandIndex;
+    private final CommandRouter router;
     private final ArrayList<Command> commands;
     private final String success;
     private final String warning;
@@ -88,25 +99,42 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
     private final String carbonKey;
     private final String botsKey;
     private final String botsOrgKey;
-    private final HashMap<String,OffsetDateTime> cooldowns;
-    private final HashMap<String,Integer> uses;
+    private final CooldownStore cooldowns;
     private final HashMap<String,ScheduledFuture<?>> schedulepool;
-    private final FixedSizeCache<Long, Set<Message>> linkMap;
+    // call message IDs to the channel and message IDs of their responses, in pairs
+    private final LongFixedSizeCache<long[]> linkMap;
+    private final DeletionCoalescer linkedDeletions;
+    private final boolean rerunEditedCommands;
     private final boolean useHelp;
     private final Function<CommandEvent,String> helpFunction;
     private final String helpWord;
     private final ScheduledExecutorService executor;
     private final int linkedCacheSize;
     private final AnnotatedModuleCompiler compiler;
+    private final GuildPrefixCache guildPrefixes;
+    private final RoleIndex roleIndex;
+    private final TopicTagCache topicTags;
+    // only set if the client created it, and so has to shut it down
+    private final ExecutorService ownSettingsExecutor;
+    private final Executor commandExecutor;
+    private final AtomicInteger queuedCommands;
+    private final AtomicLong rejectedCommands;
+    private final CommandMetrics metrics;
 
     private String textPrefix;
+    private volatile PrefixMatcher prefixMatcher;
     private CommandListener listener = null;
+    private OffsetDateTime lastSnapshot;
+    private Map<String,Long> lastUses = Collections.emptyMap();
     private int totalGuilds;
 
     public CommandClientImpl(String ownerId, String[] coOwnerIds, String prefix, String altprefix, Game game, OnlineStatus status, String serverInvite,
             String success, String warning, String error, String carbonKey, String botsKey, String botsOrgKey, ArrayList<Command> commands,
             boolean useHelp, Function<CommandEvent,String> helpFunction, String helpWord, ScheduledExecutorService executor,
-            int linkedCacheSize, AnnotatedModuleCompiler compiler)
+            int linkedCacheSize, AnnotatedModuleCompiler compiler, GuildSettingsProvider settingsProvider, int settingsCacheSize,
+            Executor settingsExecutor, Executor commandExecutor, int maxCooldowns, boolean rerunEditedCommands, MetricsExporter metricsExporter,
+            long metricsExportPeriodMillis, long linkedDeletionWindowMillis, int roleIndexSize,
+            long settingsRefreshMillis, int topicTagCacheSize)
     {
         if(ownerId == null)
             throw new IllegalArgumentException("Owner ID was set null or not set! Please provide an User ID to register as the owner!");
@@ -122,12 +150,14 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
         }
 
         this.start = OffsetDateTime.now();
+        this.lastSnapshot = start;
 
         this.ownerId = ownerId;
         this.coOwnerIds = coOwnerIds;
         this.prefix = prefix==null || prefix.isEmpty() ? DEFAULT_PREFIX : prefix;
         this.altprefix = altprefix==null || altprefix.isEmpty() ? null : altprefix;
         this.textPrefix = prefix;
+        this.prefixMatcher = compilePrefixes(0L);
         this.game = game;
         this.status = status;
         this.serverInvite = serverInvite;
@@ -137,17 +167,41 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
         this.carbonKey = carbonKey;
         this.botsKey = botsKey;
         this.botsOrgKey = botsOrgKey;
-        this.commandIndex = new HashMap<>();
         this.commands = new ArrayList<>();
-        this.cooldowns = new HashMap<>();
-        this.uses = new HashMap<>();
+        this.cooldowns = new CooldownStore(maxCooldowns);
         this.schedulepool = new HashMap<>();
-        this.linkMap = linkedCacheSize>0 ? new FixedSizeCache<>(linkedCacheSize) : null;
+        this.linkMap = linkedCacheSize>0 ? new LongFixedSizeCache<>(linkedCacheSize) : null;
         this.useHelp = useHelp;
         this.helpWord = helpWord==null ? "help" : helpWord;
+        this.router = new CommandRouter(this.helpWord);
         this.executor = executor==null ? Executors.newSingleThreadScheduledExecutor() : executor;
         this.linkedCacheSize = linkedCacheSize;
+        this.rerunEditedCommands = rerunEditedCommands && linkedCacheSize>0;
+        this.linkedDeletions = new DeletionCoalescer(this.executor, linkedDeletionWindowMillis, TimeUnit.MILLISECONDS);
         this.compiler = compiler;
+        // settings are loaded off of the scheduler, so a slow provider never delays scheduled tasks
+        this.ownSettingsExecutor = settingsProvider!=null && settingsExecutor==null ? Executors.newSingleThreadExecutor() : null;
+        this.guildPrefixes = settingsProvider==null ? null :
+                new GuildPrefixCache(settingsProvider, settingsExecutor==null ? ownSettingsExecutor : settingsExecutor,
+                        settingsCacheSize, settingsRefreshMillis, TimeUnit.MILLISECONDS);
+        this.roleIndex = new RoleIndex(roleIndexSize);
+        this.topicTags = new TopicTagCache(topicTagCacheSize);
+        this.commandExecutor = commandExecutor;
+        this.queuedCommands = new AtomicInteger();
+        this.rejectedCommands = new AtomicLong();
+        this.metrics = new CommandMetrics();
+        this.executor.scheduleWithFixedDelay(cooldowns::sweep, COOLDOWN_SWEEP_SECONDS, COOLDOWN_SWEEP_SECONDS, TimeUnit.SECONDS);
+        if(metricsExporter!=null)
+            this.executor.scheduleAtFixedRate(() -> {
+                try
+                {
+                    metrics.export(metricsExporter);
+                }
+                catch(Throwable t)
+                {
+                    LOG.error("Metrics exporter threw an exception: ", t);
+                }
+            }, metricsExportPeriodMillis, metricsExportPeriodMillis, TimeUnit.MILLISECONDS);
         this.helpFunction = helpFunction==null ? (event) -> {
                 StringBuilder builder = new StringBuilder("**"+event.getSelfUser().getName()+"** commands:\n");
                 Category category = null;
@@ -207,49 +261,66 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
     @Override
     public OffsetDateTime getCooldown(String name)
     {
-        return cooldowns.get(name);
+        long remaining = cooldowns.getRemainingNanos(name);
+        return remaining>0 ? OffsetDateTime.now().plusNanos(remaining) : null;
     }
 
     @Override
     public int getRemainingCooldown(String name)
     {
-        if(cooldowns.containsKey(name))
-        {
-            int time = (int)OffsetDateTime.now().until(cooldowns.get(name), ChronoUnit.SECONDS);
-            if(time<=0)
-            {
-                cooldowns.remove(name);
-                return 0;
-            }
-            return time;
-        }
-        return 0;
+        long remaining = TimeUnit.NANOSECONDS.toSeconds(cooldowns.getRemainingNanos(name));
+        return remaining>0 ? (int)remaining : 0;
     }
 
     @Override
     public void applyCooldown(String name, int seconds)
     {
-        cooldowns.put(name, OffsetDateTime.now().plusSeconds(seconds));
+        cooldowns.apply(name, seconds);
     }
 
     @Override
     public void cleanCooldowns()
     {
-        OffsetDateTime now = OffsetDateTime.now();
-        cooldowns.keySet().stream().filter((str) -> (cooldowns.get(str).isBefore(now)))
-                .collect(Collectors.toList()).stream().forEach(str -> cooldowns.remove(str));
+        cooldowns.sweep();
     }
 
     @Override
     public int getCommandUses(Command command)
     {
-    	return getCommandUses(command.getName());
+        return (int)command.getUses();
     }
 
     @Override
     public int getCommandUses(String name)
     {
-    	return uses.getOrDefault(name, 0);
+        Command command = router.get(name);
+        return command!=null && command.getName().equals(name) ? (int)command.getUses() : 0;
+    }
+
+    @Override
+    public CommandUsageSnapshot getCommandUsageSnapshot()
+    {
+        List<Command> registered;
+        synchronized(router)
+        {
+            registered = new ArrayList<>(commands);
+        }
+        synchronized(this)
+        {
+            OffsetDateTime now = OffsetDateTime.now();
+            Map<String,Long> totals = new LinkedHashMap<>();
+            Map<String,Long> deltas = new LinkedHashMap<>();
+            for(Command command : registered)
+            {
+                long total = command.getUses();
+                totals.put(command.getName(), total);
+                deltas.put(command.getName(), Math.max(total - lastUses.getOrDefault(command.getName(), 0L), 0L));
+            }
+            CommandUsageSnapshot snapshot = new CommandUsageSnapshot(now, Duration.between(lastSnapshot, now), totals, deltas);
+            lastSnapshot = now;
+            lastUses = totals;
+            return snapshot;
+        }
     }
 
     @Override
@@ -263,37 +334,28 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
     {
         if(index>commands.size() || index<0)
             throw new ArrayIndexOutOfBoundsException("Index specified is invalid: ["+index+"/"+commands.size()+"]");
-        String name = command.getName();
-        synchronized(commandIndex)
+        synchronized(router)
         {
-            if(commandIndex.containsKey(name))
-                throw new IllegalArgumentException("Command added has a name or alias that has already been indexed: \""+name+"\"!");
-            for(String alias : command.getAliases())
-            {
-                if(commandIndex.containsKey(alias))
-                    throw new IllegalArgumentException("Command added has a name or alias that has already been indexed: \""+alias+"\"!");
-                commandIndex.put(alias, index);
-            }
-            commandIndex.put(name, index);
-            if(index<commands.size())
-                commandIndex.keySet().stream().filter(key -> commandIndex.get(key)>index).collect(Collectors.toList())
-                        .forEach(key -> commandIndex.put(key, commandIndex.get(key)+1));
+            String conflict = router.findConflict(command);
+            if(conflict!=null)
+                throw new IllegalArgumentException("Command added has a name or alias that has already been indexed: \""+conflict+"\"!");
+            command.getRequirements();
+            router.add(command);
+            commands.add(index,command);
         }
-        commands.add(index,command);
     }
 
     @Override
     public void removeCommand(String name)
     {
-        if(!commandIndex.containsKey(name))
-            throw new IllegalArgumentException("Name provided is not indexed: \"" + name + "\"!");
-        int targetIndex = commandIndex.remove(name);
-        if(commandIndex.containsValue(targetIndex))
-            commandIndex.keySet().stream().filter(key -> commandIndex.get(key) == targetIndex)
-                    .collect(Collectors.toList()).forEach(key -> commandIndex.remove(key));
-        commandIndex.keySet().stream().filter(key -> commandIndex.get(key)>targetIndex).collect(Collectors.toList())
-                .forEach(key -> commandIndex.put(key, commandIndex.get(key)-1));
-        commands.remove(targetIndex);
+        synchronized(router)
+        {
+            Command command = router.get(name);
+            if(command==null)
+                throw new IllegalArgumentException("Name provided is not indexed: \"" + name + "\"!");
+            router.remove(command);
+            commands.remove(command);
+        }
     }
 
     @Override
@@ -449,6 +511,31 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
                 .collect(Collectors.toList()).stream().forEach((str) -> schedulepool.remove(str));
     }
 
+    @Override
+    public void invalidateGuildSettings(long guildId)
+    {
+        if(guildPrefixes!=null)
+            guildPrefixes.invalidate(guildId);
+    }
+
+    @Override
+    public int getQueuedCommands()
+    {
+        return queuedCommands.get();
+    }
+
+    @Override
+    public long getRejectedCommands()
+    {
+        return rejectedCommands.get();
+    }
+
+    @Override
+    public CommandMetrics getMetrics()
+    {
+        return metrics;
+    }
+
     @Override
     public boolean usesLinkedDeletion() {
         return linkedCacheSize>0;
@@ -464,6 +551,7 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
             return;
         }
         textPrefix = prefix.equals(DEFAULT_PREFIX) ? "@"+event.getJDA().getSelfUser().getName()+" " : prefix;
+        prefixMatcher = compilePrefixes(event.getJDA().getSelfUser().getIdLong());
         event.getJDA().getPresence().setStatus(status==null ? OnlineStatus.ONLINE : status);
         if(game!=null)
             event.getJDA().getPresence().setGame("default".equals(game.getName()) ?
@@ -476,6 +564,8 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
     public void onShutdown(ShutdownEvent event)
     {
         executor.shutdown();
+        if(ownSettingsExecutor!=null)
+            ownSettingsExecutor.shutdown();
     }
 
     @Override
@@ -483,25 +573,54 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
     {
         if(event.getAuthor().isBot())
             return;
-        boolean[] isCommand = new boolean[]{false};
-        String[] parts = null;
+        if(!dispatch(event, null) && listener!=null)
+            listener.onNonCommandMessage(event);
+    }
+
+    @Override
+    public void onMessageUpdate(MessageUpdateEvent event)
+    {
+        if(!rerunEditedCommands || event.getAuthor().isBot())
+            return;
+        // only calls that were answered are re-run, their responses are edited in place
+        long[] links = linkMap.get(event.getMessageIdLong());
+        if(links!=null)
+            dispatch(new MessageReceivedEvent(event.getJDA(), event.getResponseNumber(), event.getMessage()), links);
+    }
+
+    // Runs the command the message calls, if any, returning whether it was a call
+    private boolean dispatch(MessageReceivedEvent event, long[] editable)
+    {
+        boolean isCommand = false;
+        // re-runs of edited calls were already dispatched once, so they are neither timed nor counted again
+        boolean rerun = editable!=null;
         String rawContent = event.getMessage().getContentRaw();
-        if(prefix.equals(DEFAULT_PREFIX) || (altprefix!=null && altprefix.equals(DEFAULT_PREFIX)))
+        long stageStart = System.nanoTime();
+        PrefixMatcher matcher = prefixMatcher;
+        if(usesMentionPrefix() && matcher.getSelfId()==0L) // ready was missed
+            prefixMatcher = matcher = compilePrefixes(event.getJDA().getSelfUser().getIdLong());
+        int offset = matcher.match(rawContent);
+        if(offset==-1 && guildPrefixes!=null && event.getGuild()!=null)
         {
-            if(rawContent.startsWith("<@"+event.getJDA().getSelfUser().getId()+">")
-                    || rawContent.startsWith("<@!"+event.getJDA().getSelfUser().getId()+">"))
-                parts = Arrays.copyOf(rawContent.substring(rawContent.indexOf(">")+1).trim().split("\\s+",2), 2);
+            PrefixMatcher guildMatcher = guildPrefixes.get(event.getGuild().getIdLong());
+            if(guildMatcher!=null)
+                offset = guildMatcher.match(rawContent);
         }
-        if(parts==null && rawContent.toLowerCase().startsWith(prefix.toLowerCase()))
-            parts = Arrays.copyOf(rawContent.substring(prefix.length()).trim().split("\\s+",2), 2);
-        if(parts==null && altprefix!=null && rawContent.toLowerCase().startsWith(altprefix.toLowerCase()))
-            parts = Arrays.copyOf(rawContent.substring(altprefix.length()).trim().split("\\s+",2), 2);
-        if(parts!=null) //starts with valid prefix
+        if(offset!=-1) //starts with valid prefix
         {
-            if(useHelp && parts[0].equalsIgnoreCase(helpWord))
+            // only calls are timed, so ordinary chat does not contend on the histograms
+            if(!rerun)
+                metrics.record(CommandMetrics.Stage.PREFIX, stageStart);
+            stageStart = System.nanoTime();
+            int end = CommandRouter.trimEnd(rawContent, offset);
+            int start = CommandRouter.skipWhitespace(rawContent, offset, end);
+            int wordEnd = CommandRouter.wordEnd(rawContent, start, end);
+            if(useHelp && CommandRouter.isWord(rawContent, start, wordEnd, helpWord))
             {
-                isCommand[0] = true;
-                CommandEvent cevent = new CommandEvent(event, parts[1]==null ? "" : parts[1], this);
+                if(!rerun)
+                    metrics.record(CommandMetrics.Stage.ROUTING, stageStart);
+                isCommand = true;
+                CommandEvent cevent = new CommandEvent(event, CommandRouter.skipWhitespace(rawContent, wordEnd, end), end, this);
                 if(listener!=null)
                     listener.onCommand(cevent, null);
                 List<String> messages = CommandEvent.splitMessage(helpFunction.apply(cevent));
@@ -520,35 +639,112 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
             }
             else if(event.isFromType(ChannelType.PRIVATE) || event.getTextChannel().canTalk())
             {
-                String name = parts[0];
-                String args = parts[1]==null ? "" : parts[1];
-                if(commands.size()<INDEX_LIMIT+1) {
-                    commands.stream().filter(cmd -> cmd.isCommandFor(name)).findAny().ifPresent(command -> {
-                        isCommand[0] = true;
-                        CommandEvent cevent = new CommandEvent(event, args, this);
-
-                        if(listener != null)
-                            listener.onCommand(cevent, command);
-                        uses.put(command.getName(), uses.getOrDefault(command.getName(), 0) + 1);
-                        command.run(cevent);
-                    });
-                } else {
-                    int i = commandIndex.getOrDefault(name.toLowerCase(), -1);
-                    if(i!=-1)
-                    {
-                        isCommand[0] = true;
-                        Command command = commands.get(i);
-                        CommandEvent cevent = new CommandEvent(event,args,this);
-                        if(listener != null)
-                            listener.onCommand(cevent,command);
-                        uses.put(command.getName(), uses.getOrDefault(command.getName(), 0)+1);
-                        command.run(cevent);
-                    }
+                CommandRouter.Match match = router.route(rawContent, offset);
+                if(!rerun)
+                    metrics.record(CommandMetrics.Stage.ROUTING, stageStart);
+                if(match!=null)
+                {
+                    isCommand = true;
+                    Command command = match.getCommand();
+                    CommandEvent cevent = new CommandEvent(event, match.getArgsStart(), match.getArgsEnd(), this, editable);
+                    if(listener != null)
+                        listener.onCommand(cevent, command);
+                    if(!rerun)
+                        command.incrementUses();
+                    execute(command, match.getTarget(), cevent);
                 }
             }
         }
-        if(!isCommand[0] && listener!=null)
-            listener.onNonCommandMessage(event);
+        return isCommand;
+    }
+
+    private void execute(Command command, Command target, CommandEvent event)
+    {
+        Executor commandExecutor = getExecutor(command, target);
+        if(commandExecutor==null)
+        {
+            target.runResolved(event);
+            return;
+        }
+        queuedCommands.incrementAndGet();
+        try
+        {
+            commandExecutor.execute(() -> {
+                queuedCommands.decrementAndGet();
+                try
+                {
+                    target.runResolved(event);
+                }
+                catch(Throwable t)
+                {
+                    LOG.error("Command "+target.getName()+" threw an exception: ", t);
+                }
+            });
+        }
+        catch(RejectedExecutionException e)
+        {
+            queuedCommands.decrementAndGet();
+            rejectedCommands.incrementAndGet();
+            metrics.terminated(CommandMetrics.TerminationReason.REJECTED);
+            LOG.warn("Command "+target.getName()+" was rejected by its executor!");
+            if(listener!=null)
+                listener.onTerminatedCommand(event, target);
+        }
+    }
+
+    // The most specific executor wins: the called child, then its parent, then their categories, then the client
+    private Executor getExecutor(Command command, Command target)
+    {
+        if(target.getExecutor()!=null)
+            return target.getExecutor();
+        if(command.getExecutor()!=null)
+            return command.getExecutor();
+        if(target.getCategory()!=null && target.getCategory().getExecutor()!=null)
+            return target.getCategory().getExecutor();
+        if(command.getCategory()!=null && command.getCategory().getExecutor()!=null)
+            return command.getCategory().getExecutor();
+        return commandExecutor;
+    }
+
+    private boolean usesMentionPrefix()
+    {
+        return prefix.equals(DEFAULT_PREFIX) || (altprefix!=null && altprefix.equals(DEFAULT_PREFIX));
+    }
+
+    private PrefixMatcher compilePrefixes(long selfId)
+    {
+        String[] mentions = usesMentionPrefix() && selfId!=0L ? PrefixMatcher.mentions(selfId) : new String[2];
+        return new PrefixMatcher(selfId, mentions[0], mentions[1], prefix, altprefix);
+    }
+
+    @Override
+    public void onTextChannelUpdateTopic(TextChannelUpdateTopicEvent event)
+    {
+        topicTags.invalidate(event.getChannel().getIdLong());
+    }
+
+    @Override
+    public void onTextChannelDelete(TextChannelDeleteEvent event)
+    {
+        topicTags.invalidate(event.getChannel().getIdLong());
+    }
+
+    @Override
+    public void onRoleCreate(RoleCreateEvent event)
+    {
+        roleIndex.invalidate(event.getGuild().getIdLong());
+    }
+
+    @Override
+    public void onRoleUpdateName(RoleUpdateNameEvent event)
+    {
+        roleIndex.invalidate(event.getGuild().getIdLong());
+    }
+
+    @Override
+    public void onRoleDelete(RoleDeleteEvent event)
+    {
+        roleIndex.invalidate(event.getGuild().getIdLong());
     }
 
     @Override
@@ -561,6 +757,7 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
     @Override
     public void onGuildLeave(GuildLeaveEvent event)
     {
+        roleIndex.invalidate(event.getGuild().getIdLong());
         sendStats(event.getJDA());
     }
 
@@ -673,19 +870,50 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
     {
         if(!event.isFromType(ChannelType.TEXT) || !usesLinkedDeletion()) // If it's not from a textchannel
             return;
-        synchronized (linkMap)
+        // the responses are deleted along with the call, so the link is no longer needed
+        long[] links = linkMap.remove(event.getMessageIdLong());
+        if(links == null)
+            return;
+        // deletions are coalesced per channel, so deleting several calls in a row bulk deletes their responses
+        for(int i = 0; i < links.length; i += 2)
         {
-            if(linkMap.contains(event.getMessageIdLong()))
-            {
-                Set<Message> messages = linkMap.get(event.getMessageIdLong());
-                if(messages.size()>1 && event.getGuild().getSelfMember().hasPermission(event.getTextChannel(), Permission.MESSAGE_MANAGE))
-                    event.getTextChannel().deleteMessages(messages).queue(unused -> {}, ignored -> {});
-                else if(messages.size()>0)
-                    messages.forEach(m -> m.delete().queue(unused -> {}, ignored -> {}));
-            }
+            MessageChannel channel = links[i] == event.getChannel().getIdLong() ? event.getChannel() : null;
+            // responses sent elsewhere, such as in DMs
+            if(channel == null)
+                channel = event.getJDA().getTextChannelById(links[i]);
+            if(channel == null)
+                channel = event.getJDA().getPrivateChannelById(links[i]);
+            if(channel != null)
+                linkedDeletions.delete(channel, links[i + 1]);
         }
     }
 
+    /**
+     * <b>DO NOT USE THIS!</b>
+     *
+     * <p>This is a method necessary for checking and applying the cooldowns of
+     * {@link com.jagrosh.jdautilities.commandclient.Command Command}s in a single step.
+     * <br><b>Using this anywhere in your code can and will break your bot.</b>
+     *
+     * @return The CooldownStore of this client
+     */
+    public CooldownStore getCooldownStore()
+    {
+        return cooldowns;
+    }
+
+    // The roles of the Guilds this client has seen, indexed for required role checks
+    RoleIndex getRoleIndex()
+    {
+        return roleIndex;
+    }
+
+    // The parsed topic tags of the channels this client has seen
+    TopicTagCache getTopicTags()
+    {
+        return topicTags;
+    }
+
     /**
      * <b>DO NOT USE THIS!</b>
      *
@@ -700,17 +928,17 @@ public class CommandClientImpl extends ListenerAdapter implements CommandClient
      */
     public void linkIds(long callId, Message message)
     {
-        synchronized (linkMap)
-        {
-            Set<Message> stored = linkMap.get(callId);
-            if(stored != null)
-                stored.add(message);
-            else
-            {
-                stored = new HashSet<>();
-                stored.add(message);
-                linkMap.add(callId, stored);
-            }
-        }
+        linkMap.merge(callId, new long[]{message.getChannel().getIdLong(), message.getIdLong()}, CommandClientImpl::appendLinks);
+    }
+
+    private static long[] appendLinks(long[] links, long[] added)
+    {
+        // responses edited by a re-run are already linked
+        for(int i = 0; i < links.length; i += 2)
+            if(links[i]==added[0] && links[i + 1]==added[1])
+                return links;
+        long[] appended = Arrays.copyOf(links, links.length + added.length);
+        System.arraycopy(added, 0, appended, links.length, added.length);
+        return appended;
     }
 }
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient.impl;
+
+import com.jagrosh.jdautilities.commandclient.Command;
+import com.jagrosh.jdautilities.commandclient.CommandEvent;
+import com.jagrosh.jdautilities.commandclient.CommandMetrics;
+import net.dv8tion.jda.core.Permission;
+import net.dv8tion.jda.core.entities.ChannelType;
+import net.dv8tion.jda.core.entities.Role;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.entities.VoiceChannel;
+import net.dv8tion.jda.core.utils.PermissionUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The requirements a {@link com.jagrosh.jdautilities.commandclient.Command Command} checks before it is executed,
+ * compiled once into a chain that only contains the checks the Command actually needs.
+ *
+ * <p>Required permissions are combined into raw bitmasks, so each set of permissions is checked with a single
+ * lookup of the effective permissions of the Member, rather than one lookup per permission. Required roles are
+ * resolved to the IDs of the matching roles of each Guild, which are kept until a role of the Guild is created,
+ * renamed or deleted.
+ * <br>The names topic tags are matched against are lower-cased once, and failure responses are only built once a check
+ * has failed.
+ *
+ * @since  1.9
+ */
+public final class CommandRequirements
+{
+    private static final String BOT_PERM = "%s I need the %s permission in this %s!";
+    private static final String USER_PERM = "%s You must have the %s permission in this %s to use that!";
+    private static final long ADMINISTRATOR = Permission.ADMINISTRATOR.getRawValue();
+
+    private final Requirement[] requirements;
+    private final String lowerName;
+    private final String lowerCategory;
+
+    private CommandRequirements(Requirement[] requirements, String lowerName, String lowerCategory)
+    {
+        this.requirements = requirements;
+        this.lowerName = lowerName;
+        this.lowerCategory = lowerCategory;
+    }
+
+    /**
+     * Compiles the requirements of a Command from its current settings.
+     *
+     * @param  command
+     *         The Command to compile the requirements of
+     *
+     * @return The compiled requirements
+     */
+    public static CommandRequirements compile(Command command)
+    {
+        String lowerName = command.getName().toLowerCase();
+        String lowerCategory = command.getCategory()==null ? null : command.getCategory().getName().toLowerCase();
+        List<Requirement> requirements = new ArrayList<>();
+        if(command.isOwnerCommand())
+            requirements.add(new OwnerRequirement());
+        if(command.getCategory()!=null)
+            requirements.add(new CategoryRequirement(command.getCategory()));
+        if(command.usesTopicTags())
+            requirements.add(new TopicTagRequirement(lowerName, lowerCategory));
+        String[] roles = requiredRoles(command);
+        if(roles.length>0)
+            requirements.add(new RoleRequirement(roles));
+        if(command.getBotPermissions().length>0)
+            requirements.add(new BotPermissionRequirement(command.getBotPermissions()));
+        if(command.getUserPermissions().length>0)
+            requirements.add(new UserPermissionRequirement(command.getUserPermissions()));
+        if(command.isGuildOnly())
+            requirements.add(new GuildOnlyRequirement());
+        return new CommandRequirements(requirements.toArray(new Requirement[requirements.size()]), lowerName, lowerCategory);
+    }
+
+    private static String[] requiredRoles(Command command)
+    {
+        Set<String> roles = new LinkedHashSet<>();
+        if(command.getRequiredRole()!=null)
+            roles.add(command.getRequiredRole());
+        roles.addAll(Arrays.asList(command.getRequiredRoles()));
+        return roles.toArray(new String[roles.size()]);
+    }
+
+    /**
+     * Checks the requirements against a CommandEvent, in order.
+     *
+     * @param  event
+     *         The CommandEvent to check
+     *
+     * @return The first Requirement that is not met, or {@code null} if all of them are
+     */
+    public Requirement check(CommandEvent event)
+    {
+        for(Requirement requirement : requirements)
+        {
+            if(!requirement.test(event))
+                return requirement;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the topic tags of a TextChannel allow the Command, by its lower-cased name and category name.
+     * <br>The topic is parsed on each call, as the tags cached by a client are only used when it runs the Command.
+     *
+     * @param  channel
+     *         The TextChannel to check
+     *
+     * @return {@code true} if the topic tags allow the Command
+     */
+    public boolean isAllowedByTopic(TextChannel channel)
+    {
+        return TopicTagCache.uncached(channel).isAllowed(lowerName, lowerCategory);
+    }
+
+    /**
+     * A single check of a {@link com.jagrosh.jdautilities.commandclient.impl.CommandRequirements CommandRequirements}.
+     */
+    public interface Requirement
+    {
+        /**
+         * Checks if the CommandEvent meets this Requirement.
+         *
+         * @param  event
+         *         The CommandEvent to check
+         *
+         * @return {@code true} if the Requirement is met
+         */
+        boolean test(CommandEvent event);
+
+        /**
+         * Gets the response to a CommandEvent that does not meet this Requirement.
+         *
+         * @param  event
+         *         The CommandEvent that did not meet the Requirement
+         *
+         * @return The response, or {@code null} to terminate the Command without responding
+         */
+        String getFailureResponse(CommandEvent event);
+
+        /**
+         * Gets the reason a Command is terminated for if this Requirement is not met.
+         *
+         * @return The TerminationReason of this Requirement
+         */
+        CommandMetrics.TerminationReason getTerminationReason();
+    }
+
+    private static final class OwnerRequirement implements Requirement
+    {
+        @Override
+        public boolean test(CommandEvent event)
+        {
+            return event.isOwner();
+        }
+
+        @Override
+        public CommandMetrics.TerminationReason getTerminationReason()
+        {
+            return CommandMetrics.TerminationReason.OWNER;
+        }
+
+        @Override
+        public String getFailureResponse(CommandEvent event)
+        {
+            return null;
+        }
+    }
+
+    private static final class CategoryRequirement implements Requirement
+    {
+        private final Command.Category category;
+
+        private CategoryRequirement(Command.Category category)
+        {
+            this.category = category;
+        }
+
+        @Override
+        public boolean test(CommandEvent event)
+        {
+            return category.test(event);
+        }
+
+        @Override
+        public CommandMetrics.TerminationReason getTerminationReason()
+        {
+            return CommandMetrics.TerminationReason.CATEGORY;
+        }
+
+        @Override
+        public String getFailureResponse(CommandEvent event)
+        {
+            return category.getFailureResponse();
+        }
+    }
+
+    private static final class TopicTagRequirement implements Requirement
+    {
+        private final String lowerName;
+        private final String lowerCategory;
+
+        private TopicTagRequirement(String lowerName, String lowerCategory)
+        {
+            this.lowerName = lowerName;
+            this.lowerCategory = lowerCategory;
+        }
+
+        @Override
+        public boolean test(CommandEvent event)
+        {
+            if(!event.isFromType(ChannelType.TEXT))
+                return true;
+            TopicTags tags = event.getClient() instanceof CommandClientImpl ?
+                    ((CommandClientImpl) event.getClient()).getTopicTags().of(event.getTextChannel()) :
+                    TopicTagCache.uncached(event.getTextChannel());
+            return tags.isAllowed(lowerName, lowerCategory);
+        }
+
+        @Override
+        public CommandMetrics.TerminationReason getTerminationReason()
+        {
+            return CommandMetrics.TerminationReason.TOPIC_TAGS;
+        }
+
+        @Override
+        public String getFailureResponse(CommandEvent event)
+        {
+            return "That command cannot be used in this channel!";
+        }
+    }
+
+    private static final class RoleRequirement implements Requirement
+    {
+        private final String[] names;
+        private final String[] lowerNames;
+
+        private RoleRequirement(String[] names)
+        {
+            this.names = names;
+            this.lowerNames = new String[names.length];
+            for(int i = 0; i < names.length; i++)
+                lowerNames[i] = names[i].toLowerCase();
+        }
+
+        @Override
+        public boolean test(CommandEvent event)
+        {
+            if(!event.isFromType(ChannelType.TEXT))
+                return false;
+            RoleIndex.Snapshot roles = event.getClient() instanceof CommandClientImpl ?
+                    ((CommandClientImpl) event.getClient()).getRoleIndex().of(event.getGuild()) :
+                    RoleIndex.uncached(event.getGuild());
+            long[] ids = roles.resolve(this, lowerNames);
+            if(ids.length==0)
+                return false;
+            for(Role role : event.getMember().getRoles())
+            {
+                if(Arrays.binarySearch(ids, role.getIdLong())>=0)
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public CommandMetrics.TerminationReason getTerminationReason()
+        {
+            return CommandMetrics.TerminationReason.ROLE;
+        }
+
+        @Override
+        public String getFailureResponse(CommandEvent event)
+        {
+            if(names.length==1)
+                return event.getClient().getError()+" You must have a role called `"+names[0]+"` to use that!";
+            return event.getClient().getError()+" You must have one of the roles `"+String.join("`, `", names)+"` to use that!";
+        }
+    }
+
+    private static final class BotPermissionRequirement implements Requirement
+    {
+        private final Permission[] permissions;
+        // permissions checked in the text channel, whether they are channel or guild permissions
+        private final long textMask;
+        private final long voiceMask;
+
+        private BotPermissionRequirement(Permission[] permissions)
+        {
+            this.permissions = permissions.clone();
+            long text = 0L, voice = 0L;
+            for(Permission p : permissions)
+            {
+                if(isVoice(p))
+                    voice |= p.getRawValue();
+                else
+                    text |= p.getRawValue();
+            }
+            this.textMask = text;
+            this.voiceMask = voice;
+        }
+
+        @Override
+        public boolean test(CommandEvent event)
+        {
+            if(!event.isFromType(ChannelType.TEXT))
+                return true;
+            if(textMask!=0L && !has(PermissionUtil.getEffectivePermission(event.getTextChannel(), event.getSelfMember()), textMask))
+                return false;
+            if(voiceMask==0L)
+                return true;
+            VoiceChannel vc = event.getMember().getVoiceState().getChannel();
+            return vc!=null && has(PermissionUtil.getEffectivePermission(vc, event.getSelfMember()), voiceMask);
+        }
+
+        @Override
+        public CommandMetrics.TerminationReason getTerminationReason()
+        {
+            return CommandMetrics.TerminationReason.BOT_PERMISSIONS;
+        }
+
+        @Override
+        public String getFailureResponse(CommandEvent event)
+        {
+            String error = event.getClient().getError();
+            long text = PermissionUtil.getEffectivePermission(event.getTextChannel(), event.getSelfMember());
+            VoiceChannel vc = event.getMember().getVoiceState().getChannel();
+            for(Permission p : permissions)
+            {
+                if(isVoice(p))
+                {
+                    if(vc==null)
+                        return error+" You must be in a voice channel to use that!";
+                    if(!has(PermissionUtil.getEffectivePermission(vc, event.getSelfMember()), p.getRawValue()))
+                        return String.format(BOT_PERM, error, p.name(), "Voice Channel");
+                }
+                else if(!has(text, p.getRawValue()))
+                    return String.format(BOT_PERM, error, p.name(), p.isChannel() ? "Channel" : "Guild");
+            }
+            return null;
+        }
+
+        private static boolean isVoice(Permission p)
+        {
+            return p.isChannel() && p.name().startsWith("VOICE");
+        }
+    }
+
+    private static final class UserPermissionRequirement implements Requirement
+    {
+        private final Permission[] permissions;
+        private final long mask;
+
+        private UserPermissionRequirement(Permission[] permissions)
+        {
+            this.permissions = permissions.clone();
+            this.mask = Permission.getRaw(permissions);
+        }
+
+        @Override
+        public boolean test(CommandEvent event)
+        {
+            return !event.isFromType(ChannelType.TEXT)
+                    || has(PermissionUtil.getEffectivePermission(event.getTextChannel(), event.getMember()), mask);
+        }
+
+        @Override
+        public CommandMetrics.TerminationReason getTerminationReason()
+        {
+            return CommandMetrics.TerminationReason.USER_PERMISSIONS;
+        }
+
+        @Override
+        public String getFailureResponse(CommandEvent event)
+        {
+            long effective = PermissionUtil.getEffectivePermission(event.getTextChannel(), event.getMember());
+            for(Permission p : permissions)
+            {
+                if(!has(effective, p.getRawValue()))
+                    return String.format(USER_PERM, event.getClient().getError(), p.name(), p.isChannel() ? "Channel" : "Guild");
+            }
+            return null;
+        }
+    }
+
+    private static final class GuildOnlyRequirement implements Requirement
+    {
+        @Override
+        public boolean test(CommandEvent event)
+        {
+            return event.getChannelType()==ChannelType.TEXT;
+        }
+
+        @Override
+        public CommandMetrics.TerminationReason getTerminationReason()
+        {
+            return CommandMetrics.TerminationReason.GUILD_ONLY;
+        }
+
+        @Override
+        public String getFailureResponse(CommandEvent event)
+        {
+            return event.getClient().getError()+" This command cannot be used in Direct messages";
+        }
+    }
+
+    // Mirrors PermissionUtil#checkPermission, which lets administrators bypass any permission
+    private static boolean has(long effective, long required)
+    {
+        return (effective & ADMINISTRATOR)!=0L || (effective & required)==required;
+    }
+}
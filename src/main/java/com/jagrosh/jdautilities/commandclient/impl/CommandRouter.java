@@ -0,0 +1,404 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient.impl;
+
+import com.jagrosh.jdautilities.commandclient.Command;
+
+import java.util.Arrays;
+
+/**
+ * A case-insensitive trie used by the {@link com.jagrosh.jdautilities.commandclient.impl.CommandClientImpl
+ * CommandClientImpl} to resolve {@link com.jagrosh.jdautilities.commandclient.Command Command}s directly
+ * from the raw content of a {@link net.dv8tion.jda.core.entities.Message Message}.
+ *
+ * <p>The {@link com.jagrosh.jdautilities.commandclient.Command#name name} and
+ * {@link com.jagrosh.jdautilities.commandclient.Command#aliases aliases} of every registered Command are
+ * indexed character by character, and the {@link com.jagrosh.jdautilities.commandclient.Command#children children}
+ * of each Command are indexed in a nested trie of their own when it is registered.
+ * <br>This allows calls in the format {@code <parent name> <child name> [args]} to be resolved in a single
+ * pass over the content, without creating any substrings, and allows content that is not a call to be
+ * rejected as soon as the first unknown character is reached.
+ *
+ * <p>Nodes are copy-on-write, so routing is safe while Commands are being added or removed.
+ *
+ * @since  1.9
+ */
+public class CommandRouter
+{
+    private static final Node[] NO_NODES = new Node[0];
+
+    private final String helpWord;
+    private final Node root = new Node('\0');
+
+    /**
+     * Constructs an empty CommandRouter.
+     *
+     * @param  helpWord
+     *         The help word of the client, routing will not descend into a child Command
+     *         with this name if its parent has a help consumer, so that the consumer keeps priority.
+     */
+    public CommandRouter(String helpWord)
+    {
+        this.helpWord = helpWord;
+    }
+
+    /**
+     * Gets the first name or alias of the provided Command that is already indexed.
+     *
+     * @param  command
+     *         The Command to check
+     *
+     * @return The conflicting name or alias, or {@code null} if there is none
+     */
+    public synchronized String findConflict(Command command)
+    {
+        if(get(command.getName())!=null)
+            return command.getName();
+        for(String alias : command.getAliases())
+        {
+            if(get(alias)!=null)
+                return alias;
+        }
+        return null;
+    }
+
+    /**
+     * Indexes the name and aliases of the provided Command, as well as the
+     * names and aliases of all of its children.
+     *
+     * @param  command
+     *         The Command to index
+     */
+    public synchronized void add(Command command)
+    {
+        Entry entry = new Entry(command);
+        put(root, command.getName(), entry);
+        for(String alias : command.getAliases())
+            put(root, alias, entry);
+    }
+
+    /**
+     * Removes the name and aliases of the provided Command from the index.
+     *
+     * @param  command
+     *         The Command to remove
+     */
+    public synchronized void remove(Command command)
+    {
+        remove(command.getName(), command);
+        for(String alias : command.getAliases())
+            remove(alias, command);
+    }
+
+    /**
+     * Gets the registered Command indexed under the provided name or alias.
+     *
+     * @param  name
+     *         The name or alias, case-insensitive
+     *
+     * @return The Command, or {@code null} if none is indexed under the name
+     */
+    public Command get(String name)
+    {
+        Entry entry = lookup(root, name, 0, name.length());
+        return entry == null ? null : entry.command;
+    }
+
+    /**
+     * Resolves the Command called by the provided content, starting at the specified offset
+     * (typically just after the prefix).
+     *
+     * @param  content
+     *         The raw content to route
+     * @param  offset
+     *         The index to start routing at
+     *
+     * @return The resolved Match, or {@code null} if the content does not call a registered Command
+     */
+    public Match route(String content, int offset)
+    {
+        int end = trimEnd(content, offset);
+        int start = skipWhitespace(content, offset, end);
+        int wordEnd = wordEnd(content, start, end);
+        Entry entry = lookup(root, content, start, wordEnd);
+        if(entry == null)
+            return null;
+        Command command = entry.command;
+        int argsStart = skipWhitespace(content, wordEnd, end);
+
+        // descend into children while the next word names one
+        while(entry.children != null && argsStart < end)
+        {
+            wordEnd = wordEnd(content, argsStart, end);
+            if(entry.helpFirst && isWord(content, argsStart, wordEnd, helpWord))
+                break;
+            Entry child = lookup(entry.children, content, argsStart, wordEnd);
+            if(child == null)
+                break;
+            entry = child;
+            argsStart = skipWhitespace(content, wordEnd, end);
+        }
+        return new Match(command, entry.command, argsStart, end);
+    }
+
+    /**
+     * Checks if the characters of the content between the specified indices are
+     * a case-insensitive match to the provided word.
+     *
+     * @param  content
+     *         The content to check
+     * @param  start
+     *         The start of the word, inclusive
+     * @param  end
+     *         The end of the word, exclusive
+     * @param  word
+     *         The word to compare with
+     *
+     * @return {@code true} if the content matches the word
+     */
+    public static boolean isWord(String content, int start, int end, String word)
+    {
+        return end - start == word.length() && content.regionMatches(true, start, word, 0, word.length());
+    }
+
+    /**
+     * Gets the index of the first non-whitespace character at or after the specified index.
+     *
+     * @param  content
+     *         The content to scan
+     * @param  index
+     *         The index to start at
+     * @param  end
+     *         The index to stop at
+     *
+     * @return The index of the first non-whitespace character, or {@code end}
+     */
+    public static int skipWhitespace(String content, int index, int end)
+    {
+        while(index < end && Character.isWhitespace(content.charAt(index)))
+            index++;
+        return index;
+    }
+
+    /**
+     * Gets the index of the first whitespace character at or after the specified index.
+     *
+     * @param  content
+     *         The content to scan
+     * @param  index
+     *         The index to start at
+     * @param  end
+     *         The index to stop at
+     *
+     * @return The index of the first whitespace character, or {@code end}
+     */
+    public static int wordEnd(String content, int index, int end)
+    {
+        while(index < end && !Character.isWhitespace(content.charAt(index)))
+            index++;
+        return index;
+    }
+
+    /**
+     * Gets the length of the content once trailing whitespace is removed.
+     *
+     * @param  content
+     *         The content to scan
+     * @param  start
+     *         The index the content effectively starts at
+     *
+     * @return The exclusive end index of the content without trailing whitespace
+     */
+    public static int trimEnd(String content, int start)
+    {
+        int end = content.length();
+        while(end > start && Character.isWhitespace(content.charAt(end - 1)))
+            end--;
+        return end;
+    }
+
+    // Stops as soon as a character has no matching node, so most
+    // content that isn't a call is rejected after a character or two.
+    private static Entry lookup(Node node, String content, int start, int end)
+    {
+        if(start >= end)
+            return null;
+        for(int i = start; i < end && node != null; i++)
+            node = node.child(fold(content.charAt(i)));
+        return node == null ? null : node.entry;
+    }
+
+    private static void put(Node node, String key, Entry entry)
+    {
+        for(int i = 0; i < key.length(); i++)
+            node = node.getOrCreate(fold(key.charAt(i)));
+        node.entry = entry;
+    }
+
+    private void remove(String key, Command command)
+    {
+        Node node = root;
+        for(int i = 0; i < key.length() && node != null; i++)
+            node = node.child(fold(key.charAt(i)));
+        if(node != null && node.entry != null && node.entry.command == command)
+            node.entry = null;
+    }
+
+    // Mirrors the folding done by String#regionMatches(boolean, ...)
+    private static char fold(char c)
+    {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * The result of routing content, containing the called Command as well as the
+     * bounds of the arguments within the routed content.
+     */
+    public static final class Match
+    {
+        private final Command command;
+        private final Command target;
+        private final int argsStart;
+        private final int argsEnd;
+
+        private Match(Command command, Command target, int argsStart, int argsEnd)
+        {
+            this.command = command;
+            this.target = target;
+            this.argsStart = argsStart;
+            this.argsEnd = argsEnd;
+        }
+
+        /**
+         * Gets the registered (top-level) Command that was called.
+         *
+         * @return The registered Command
+         */
+        public Command getCommand()
+        {
+            return command;
+        }
+
+        /**
+         * Gets the Command that should be run, this is either the registered Command
+         * or one of its (possibly nested) children.
+         * <br>The target is fully resolved, so it is run with
+         * {@link com.jagrosh.jdautilities.commandclient.Command#runResolved(com.jagrosh.jdautilities.commandclient.CommandEvent)
+         * Command#runResolved(CommandEvent)} rather than looking for children again.
+         *
+         * @return The Command to run
+         */
+        public Command getTarget()
+        {
+            return target;
+        }
+
+        /**
+         * Gets the index that the arguments start at, inclusive.
+         *
+         * @return The start index of the arguments
+         */
+        public int getArgsStart()
+        {
+            return argsStart;
+        }
+
+        /**
+         * Gets the index that the arguments end at, exclusive.
+         *
+         * @return The end index of the arguments
+         */
+        public int getArgsEnd()
+        {
+            return argsEnd;
+        }
+    }
+
+    private static final class Entry
+    {
+        private final Command command;
+        private final Node children;
+        private final boolean helpFirst;
+
+        private Entry(Command command)
+        {
+            this.command = command;
+            this.helpFirst = command.getHelpBiConsumer() != null;
+            Command[] children = command.getChildren();
+            if(children == null || children.length == 0)
+                this.children = null;
+            else
+            {
+                this.children = new Node('\0');
+                for(Command child : children)
+                {
+                    Entry entry = new Entry(child);
+                    put(this.children, child.getName(), entry);
+                    for(String alias : child.getAliases())
+                        put(this.children, alias, entry);
+                }
+            }
+        }
+    }
+
+    private static final class Node
+    {
+        private final char key;
+        private volatile Node[] children = NO_NODES;
+        private volatile Entry entry;
+
+        private Node(char key)
+        {
+            this.key = key;
+        }
+
+        private Node child(char c)
+        {
+            Node[] nodes = children;
+            int low = 0, high = nodes.length - 1;
+            while(low <= high)
+            {
+                int mid = (low + high) >>> 1;
+                char k = nodes[mid].key;
+                if(k < c)
+                    low = mid + 1;
+                else if(k > c)
+                    high = mid - 1;
+                else
+                    return nodes[mid];
+            }
+            return null;
+        }
+
+        // Writers are serialized by the router, readers always see a complete array.
+        private Node getOrCreate(char c)
+        {
+            Node existing = child(c);
+            if(existing != null)
+                return existing;
+            Node[] nodes = children;
+            int index = 0;
+            while(index < nodes.length && nodes[index].key < c)
+                index++;
+            Node[] updated = Arrays.copyOf(nodes, nodes.length + 1);
+            System.arraycopy(nodes, index, updated, index + 1, nodes.length - index);
+            Node created = new Node(c);
+            updated[index] = created;
+            children = updated;
+            return created;
+        }
+    }
+}
@@ -0,0 +1,617 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient.impl;
+
+import com.jagrosh.jdautilities.commandclient.Command.CooldownScope;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrent store of cooldowns used by the {@link com.jagrosh.jdautilities.commandclient.impl.CommandClientImpl
+ * CommandClientImpl}.
+ *
+ * <p>Cooldowns of a {@link com.jagrosh.jdautilities.commandclient.Command.CooldownScope CooldownScope} are keyed by
+ * the ordinal of the command's name, the scope, and up to two IDs, all packed into primitive longs, and expire at
+ * a {@link System#nanoTime()} deadline. Keys are spread over a number of lock-striped open-addressing tables,
+ * so calls on different event threads rarely contend, and checking and applying a cooldown is a single atomic step.
+ * <br>Keys in the String format generated by {@link com.jagrosh.jdautilities.commandclient.Command#getCooldownKey(
+ * com.jagrosh.jdautilities.commandclient.CommandEvent) Command#getCooldownKey(CommandEvent)} are decoded into the same
+ * primitive keys, any other String is stored separately.
+ *
+ * <p>Each stripe has a hierarchical timing wheel that removes expired cooldowns. The wheel of a stripe is advanced
+ * whenever the stripe is accessed, as well as by {@link #sweep()}, which is meant to be called periodically, so expiry
+ * is spread over small steps rather than done in a full pass.
+ *
+ * <p>The store may be bounded, in which case a full stripe makes room by removing the cooldown closest to expiring.
+ * Cooldowns stored under other keys count against the same maximum, and make room in the stripes the same way.
+ * If no cooldown can be removed, the new cooldown is not stored, and the command is allowed to run.
+ *
+ * @since  1.9
+ */
+public class CooldownStore
+{
+    private static final int STRIPES = 16;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SLOTS = 1 << WHEEL_BITS;
+    private static final int WHEEL_LEVELS = 4;
+    private static final long WHEEL_SPAN = 1L << (WHEEL_BITS * WHEEL_LEVELS);
+    // Catching up further than this rebuilds the wheel instead of stepping through every tick
+    private static final long MAX_CATCH_UP = WHEEL_SLOTS * WHEEL_SLOTS;
+    private static final CooldownScope[] SCOPES = CooldownScope.values();
+    private static final int NAMED_SWEEP_BATCH = 1024;
+
+    private final ConcurrentHashMap<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private final AtomicInteger nextOrdinal = new AtomicInteger();
+    private final ConcurrentHashMap<String, Long> named = new ConcurrentHashMap<>();
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long origin = System.nanoTime();
+    private final int maxSize;
+    private final int stripeLimit;
+    // cooldowns stored across the stripes and the named map, only counted if the store is bounded
+    private final AtomicInteger stored = new AtomicInteger();
+    private Iterator<Map.Entry<String, Long>> namedSweep;
+
+    /**
+     * Constructs an empty CooldownStore.
+     *
+     * @param  maxSize
+     *         The maximum number of cooldowns to store, or {@code 0} or less for no maximum
+     */
+    public CooldownStore(int maxSize)
+    {
+        this.maxSize = maxSize > 0 ? maxSize : Integer.MAX_VALUE;
+        this.stripeLimit = maxSize > 0 ? Math.max(1, (maxSize + STRIPES - 1) / STRIPES) : Integer.MAX_VALUE;
+        for(int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe();
+    }
+
+    /**
+     * Checks the cooldown of a command for the provided scope and IDs, applying it if
+     * the command is not on cooldown.
+     *
+     * @param  name
+     *         The name of the command
+     * @param  scope
+     *         The scope the IDs were resolved for
+     * @param  idOne
+     *         The first ID of the scope, or {@code 0} if the scope has none
+     * @param  idTwo
+     *         The second ID of the scope, or {@code 0} if the scope has only one
+     * @param  seconds
+     *         The number of seconds to apply the cooldown for
+     *
+     * @return The number of seconds remaining on the cooldown, or {@code 0} if the cooldown was applied
+     */
+    public int tryApply(String name, CooldownScope scope, long idOne, long idTwo, int seconds)
+    {
+        long head = head(ordinal(name), scope);
+        long now = System.nanoTime();
+        Stripe stripe = stripe(hash(head, idOne, idTwo));
+        synchronized(stripe)
+        {
+            stripe.advance(tick(now));
+            int slot = stripe.find(head, idOne, idTwo);
+            if(slot >= 0)
+            {
+                long remaining = TimeUnit.NANOSECONDS.toSeconds(stripe.deadlines[slot] - now);
+                if(remaining > 0)
+                    return (int) remaining;
+            }
+            else if(!stripe.hasRoom())
+                return 0;
+            stripe.put(head, idOne, idTwo, now + TimeUnit.SECONDS.toNanos(seconds), slot);
+            return 0;
+        }
+    }
+
+    /**
+     * Gets the time remaining on the cooldown with the provided key.
+     *
+     * @param  key
+     *         The key of the cooldown
+     *
+     * @return The remaining time in nanoseconds, {@code 0} or less if there is no cooldown
+     */
+    public long getRemainingNanos(String key)
+    {
+        long now = System.nanoTime();
+        long[] decoded = decode(key);
+        if(decoded == null)
+        {
+            Long deadline = named.get(key);
+            if(deadline == null)
+                return 0;
+            if(deadline - now <= 0)
+                removeNamed(key, deadline);
+            return deadline - now;
+        }
+        Stripe stripe = stripe(hash(decoded[0], decoded[1], decoded[2]));
+        synchronized(stripe)
+        {
+            stripe.advance(tick(now));
+            int slot = stripe.find(decoded[0], decoded[1], decoded[2]);
+            return slot < 0 ? 0 : stripe.deadlines[slot] - now;
+        }
+    }
+
+    /**
+     * Applies the cooldown with the provided key, replacing any existing one.
+     *
+     * @param  key
+     *         The key of the cooldown
+     * @param  seconds
+     *         The number of seconds to apply the cooldown for
+     */
+    public void apply(String key, int seconds)
+    {
+        long now = System.nanoTime();
+        long deadline = now + TimeUnit.SECONDS.toNanos(seconds);
+        long[] decoded = decode(key);
+        if(decoded == null)
+        {
+            if(named.replace(key, deadline) == null && reserveNamed() && named.put(key, deadline) != null)
+                release();
+            return;
+        }
+        Stripe stripe = stripe(hash(decoded[0], decoded[1], decoded[2]));
+        synchronized(stripe)
+        {
+            stripe.advance(tick(now));
+            int slot = stripe.find(decoded[0], decoded[1], decoded[2]);
+            if(slot >= 0 || stripe.hasRoom())
+                stripe.put(decoded[0], decoded[1], decoded[2], deadline, slot);
+        }
+    }
+
+    /**
+     * Advances the timing wheel of every stripe, removing the cooldowns that expired since the last advance,
+     * and checks a batch of the cooldowns stored under other keys.
+     *
+     * <p>The work done is proportional to the time since the last call and the number of cooldowns that
+     * expired, not to the total number of cooldowns stored.
+     */
+    public void sweep()
+    {
+        long now = System.nanoTime();
+        long tick = tick(now);
+        for(Stripe stripe : stripes)
+        {
+            synchronized(stripe)
+            {
+                stripe.advance(tick);
+            }
+        }
+        synchronized(named)
+        {
+            // the iterator is weakly consistent, so it can be resumed across sweeps
+            for(int i = 0; i < NAMED_SWEEP_BATCH; i++)
+            {
+                if(namedSweep == null || !namedSweep.hasNext())
+                {
+                    namedSweep = named.entrySet().iterator();
+                    if(!namedSweep.hasNext())
+                        break;
+                }
+                Map.Entry<String, Long> entry = namedSweep.next();
+                if(entry.getValue() - now <= 0)
+                    removeNamed(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Gets the number of cooldowns currently stored, including expired
+     * cooldowns that have not been removed yet.
+     *
+     * @return The number of stored cooldowns
+     */
+    public int size()
+    {
+        int size = named.size();
+        for(Stripe stripe : stripes)
+        {
+            synchronized(stripe)
+            {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    // Takes a unit of the maximum size, returns false if there is none left
+    private boolean reserve()
+    {
+        if(maxSize == Integer.MAX_VALUE)
+            return true;
+        for(int count = stored.get(); count < maxSize; count = stored.get())
+        {
+            if(stored.compareAndSet(count, count + 1))
+                return true;
+        }
+        return false;
+    }
+
+    private void release()
+    {
+        if(maxSize != Integer.MAX_VALUE)
+            stored.decrementAndGet();
+    }
+
+    // Named cooldowns have no order to evict in, so room is made in the stripes instead
+    private boolean reserveNamed()
+    {
+        if(reserve())
+            return true;
+        for(Stripe stripe : stripes)
+        {
+            synchronized(stripe)
+            {
+                if(stripe.evictSoonest() && reserve())
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private void removeNamed(String key, Long deadline)
+    {
+        if(named.remove(key, deadline))
+            release();
+    }
+
+    private int ordinal(String name)
+    {
+        Integer ordinal = ordinals.get(name);
+        if(ordinal == null)
+            ordinal = ordinals.computeIfAbsent(name, n -> nextOrdinal.incrementAndGet());
+        return ordinal;
+    }
+
+    private long tick(long nanos)
+    {
+        return (nanos - origin) / TICK_NANOS;
+    }
+
+    private long deadlineTick(long deadline)
+    {
+        // rounded up, so a cooldown is never swept before it expires
+        return (deadline - origin + TICK_NANOS - 1) / TICK_NANOS;
+    }
+
+    private Stripe stripe(long hash)
+    {
+        return stripes[(int) (hash >>> 60) & (STRIPES - 1)];
+    }
+
+    // Decodes "<name>|<scope>" keys of known names into {head, idOne, idTwo}, returns null for any other key
+    private long[] decode(String key)
+    {
+        for(int i = key.indexOf('|'); i >= 0; i = key.indexOf('|', i + 1))
+        {
+            Integer ordinal = ordinals.get(key.substring(0, i));
+            if(ordinal == null)
+                continue;
+            if(key.regionMatches(i + 1, "Global", 0, 6) && key.length() == i + 7)
+                return new long[]{head(ordinal, CooldownScope.GLOBAL), 0, 0};
+            long[] decoded = decodeIds(key, i + 1);
+            if(decoded != null)
+            {
+                decoded[0] = head(ordinal, SCOPES[(int) decoded[0]]);
+                return decoded;
+            }
+        }
+        return null;
+    }
+
+    // Parses "X:<id>" or "U:<id>|X:<id>" starting at the provided index, returns {scope ordinal, idOne, idTwo}
+    private static long[] decodeIds(String key, int start)
+    {
+        int split = key.indexOf('|', start);
+        char first = idType(key, start);
+        long idOne = parseId(key, start + 2, split < 0 ? key.length() : split);
+        if(first == 0 || idOne == -1)
+            return null;
+        if(split < 0)
+        {
+            switch(first)
+            {
+                case 'U': return new long[]{CooldownScope.USER.ordinal(), idOne, 0};
+                case 'C': return new long[]{CooldownScope.CHANNEL.ordinal(), idOne, 0};
+                case 'G': return new long[]{CooldownScope.GUILD.ordinal(), idOne, 0};
+                case 'S': return new long[]{CooldownScope.SHARD.ordinal(), idOne, 0};
+                default:  return null;
+            }
+        }
+        char second = idType(key, split + 1);
+        long idTwo = parseId(key, split + 3, key.length());
+        if(first != 'U' || second == 0 || idTwo == -1)
+            return null;
+        switch(second)
+        {
+            case 'C': return new long[]{CooldownScope.USER_CHANNEL.ordinal(), idOne, idTwo};
+            case 'G': return new long[]{CooldownScope.USER_GUILD.ordinal(), idOne, idTwo};
+            case 'S': return new long[]{CooldownScope.USER_SHARD.ordinal(), idOne, idTwo};
+            default:  return null;
+        }
+    }
+
+    private static char idType(String key, int index)
+    {
+        if(index + 1 >= key.length() || key.charAt(index + 1) != ':')
+            return 0;
+        return key.charAt(index);
+    }
+
+    private static long parseId(String key, int start, int end)
+    {
+        if(start >= end || end - start > 19)
+            return -1;
+        long id = 0;
+        for(int i = start; i < end; i++)
+        {
+            char c = key.charAt(i);
+            if(c < '0' || c > '9')
+                return -1;
+            id = id * 10 + (c - '0');
+        }
+        return id < 0 ? -1 : id;
+    }
+
+    private static long head(int ordinal, CooldownScope scope)
+    {
+        return ((long) ordinal << 8) | (scope.ordinal() + 1);
+    }
+
+    private static long hash(long head, long idOne, long idTwo)
+    {
+        long h = head * 0x9E3779B97F4A7C15L;
+        h = (h ^ idOne) * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ idTwo) * 0x165667B19E3779F9L;
+        return h ^ (h >>> 29);
+    }
+
+    /*
+     * An open-addressing table of cooldowns and the timing wheel expiring them, guarded by the stripe's monitor.
+     *
+     * Keys are stored as {head, idOne, idTwo} triples, where a head of 0 marks an empty slot. Every stored
+     * cooldown has exactly one live entry in the wheel, identified by a stamp, so entries left behind by
+     * removed cooldowns are recognised as stale and dropped when their bucket is reached.
+     */
+    private final class Stripe
+    {
+        private long[] keys = new long[INITIAL_CAPACITY * 3];
+        private long[] deadlines = new long[INITIAL_CAPACITY];
+        private long[] stamps = new long[INITIAL_CAPACITY];
+        private int size;
+        private long nextStamp;
+
+        // each bucket holds {head, idOne, idTwo, stamp} entries
+        private final long[][] buckets = new long[WHEEL_SLOTS * WHEEL_LEVELS][];
+        private final int[] bucketSizes = new int[WHEEL_SLOTS * WHEEL_LEVELS];
+        private long currentTick = -1;
+
+        // Makes room for a new cooldown if needed, and takes its unit of the maximum size
+        private boolean hasRoom()
+        {
+            if(size >= stripeLimit && !evictSoonest())
+                return false;
+            return reserve() || evictSoonest() && reserve();
+        }
+
+        // Removes the live cooldown in the nearest non-empty bucket, scanning each level in order
+        private boolean evictSoonest()
+        {
+            for(int level = 0; level < WHEEL_LEVELS; level++)
+            {
+                long position = currentTick >>> (WHEEL_BITS * level);
+                for(int i = 1; i <= WHEEL_SLOTS; i++)
+                {
+                    int index = level * WHEEL_SLOTS + ((int) (position + i) & (WHEEL_SLOTS - 1));
+                    long[] bucket = buckets[index];
+                    while(bucketSizes[index] > 0)
+                    {
+                        // entries are unordered, so the last one is taken and dropped, stale or not
+                        int last = bucketSizes[index] -= 4;
+                        int slot = find(bucket[last], bucket[last + 1], bucket[last + 2]);
+                        if(slot >= 0 && stamps[slot] == bucket[last + 3])
+                        {
+                            remove(slot);
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private int find(long head, long idOne, long idTwo)
+        {
+            int mask = deadlines.length - 1;
+            for(int slot = (int) hash(head, idOne, idTwo) & mask; keys[slot * 3] != 0; slot = (slot + 1) & mask)
+            {
+                if(keys[slot * 3] == head && keys[slot * 3 + 1] == idOne && keys[slot * 3 + 2] == idTwo)
+                    return slot;
+            }
+            return -1;
+        }
+
+        private void put(long head, long idOne, long idTwo, long deadline, int existing)
+        {
+            if(existing >= 0)
+            {
+                // the wheel entry of the existing cooldown moves itself once its old deadline is reached
+                deadlines[existing] = deadline;
+                return;
+            }
+            if((size + 1) * 4 > deadlines.length * 3)
+                resize();
+            int mask = deadlines.length - 1;
+            int slot = (int) hash(head, idOne, idTwo) & mask;
+            while(keys[slot * 3] != 0)
+                slot = (slot + 1) & mask;
+            keys[slot * 3] = head;
+            keys[slot * 3 + 1] = idOne;
+            keys[slot * 3 + 2] = idTwo;
+            deadlines[slot] = deadline;
+            stamps[slot] = ++nextStamp;
+            size++;
+            schedule(head, idOne, idTwo, stamps[slot], deadlineTick(deadline));
+        }
+
+        // Backward-shift deletion, keeping probe sequences intact without tombstones
+        private void remove(int slot)
+        {
+            int mask = deadlines.length - 1;
+            int next = slot;
+            while(true)
+            {
+                next = (next + 1) & mask;
+                if(keys[next * 3] == 0)
+                    break;
+                int home = (int) hash(keys[next * 3], keys[next * 3 + 1], keys[next * 3 + 2]) & mask;
+                if(((next - home) & mask) >= ((next - slot) & mask))
+                {
+                    System.arraycopy(keys, next * 3, keys, slot * 3, 3);
+                    deadlines[slot] = deadlines[next];
+                    stamps[slot] = stamps[next];
+                    slot = next;
+                }
+            }
+            keys[slot * 3] = 0;
+            keys[slot * 3 + 1] = 0;
+            keys[slot * 3 + 2] = 0;
+            size--;
+            release();
+        }
+
+        private void resize()
+        {
+            long[] oldKeys = keys;
+            long[] oldDeadlines = deadlines;
+            long[] oldStamps = stamps;
+            int capacity = oldDeadlines.length * 2;
+            keys = new long[capacity * 3];
+            deadlines = new long[capacity];
+            stamps = new long[capacity];
+            int mask = capacity - 1;
+            for(int i = 0; i < oldDeadlines.length; i++)
+            {
+                if(oldKeys[i * 3] == 0)
+                    continue;
+                int slot = (int) hash(oldKeys[i * 3], oldKeys[i * 3 + 1], oldKeys[i * 3 + 2]) & mask;
+                while(keys[slot * 3] != 0)
+                    slot = (slot + 1) & mask;
+                System.arraycopy(oldKeys, i * 3, keys, slot * 3, 3);
+                deadlines[slot] = oldDeadlines[i];
+                stamps[slot] = oldStamps[i];
+            }
+        }
+
+        private void advance(long tick)
+        {
+            if(currentTick < 0)
+                currentTick = tick;
+            if(tick - currentTick > MAX_CATCH_UP)
+            {
+                rebuild(tick);
+                return;
+            }
+            while(currentTick < tick)
+            {
+                currentTick++;
+                // cascade each higher level whenever the level below it wraps around
+                for(int level = 1; level < WHEEL_LEVELS; level++)
+                {
+                    if((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0)
+                        break;
+                    process(level * WHEEL_SLOTS + ((int) (currentTick >>> (WHEEL_BITS * level)) & (WHEEL_SLOTS - 1)));
+                }
+                process((int) currentTick & (WHEEL_SLOTS - 1));
+            }
+        }
+
+        private void process(int index)
+        {
+            long[] bucket = buckets[index];
+            int bucketSize = bucketSizes[index];
+            if(bucketSize == 0)
+                return;
+            buckets[index] = null;
+            bucketSizes[index] = 0;
+            for(int i = 0; i < bucketSize; i += 4)
+            {
+                int slot = find(bucket[i], bucket[i + 1], bucket[i + 2]);
+                if(slot < 0 || stamps[slot] != bucket[i + 3])
+                    continue;
+                long due = deadlineTick(deadlines[slot]);
+                if(due <= currentTick)
+                    remove(slot);
+                else
+                    schedule(bucket[i], bucket[i + 1], bucket[i + 2], bucket[i + 3], due);
+            }
+        }
+
+        private void rebuild(long tick)
+        {
+            Arrays.fill(buckets, null);
+            Arrays.fill(bucketSizes, 0);
+            currentTick = tick;
+            for(int slot = 0; slot < deadlines.length; slot++)
+            {
+                // removals shift later keys back into this slot, so check it again
+                while(keys[slot * 3] != 0 && deadlineTick(deadlines[slot]) <= tick)
+                    remove(slot);
+            }
+            for(int slot = 0; slot < deadlines.length; slot++)
+            {
+                if(keys[slot * 3] != 0)
+                    schedule(keys[slot * 3], keys[slot * 3 + 1], keys[slot * 3 + 2], stamps[slot], deadlineTick(deadlines[slot]));
+            }
+        }
+
+        private void schedule(long head, long idOne, long idTwo, long stamp, long due)
+        {
+            long delay = Math.max(due - currentTick, 1);
+            if(delay >= WHEEL_SPAN)
+            {
+                delay = WHEEL_SPAN - 1;
+                due = currentTick + delay;
+            }
+            int level = 0;
+            while(delay >= 1L << (WHEEL_BITS * (level + 1)))
+                level++;
+            int index = level * WHEEL_SLOTS + ((int) (Math.max(due, currentTick + 1) >>> (WHEEL_BITS * level)) & (WHEEL_SLOTS - 1));
+            long[] bucket = buckets[index];
+            int bucketSize = bucketSizes[index];
+            if(bucket == null)
+                bucket = buckets[index] = new long[16];
+            else if(bucketSize == bucket.length)
+                bucket = buckets[index] = Arrays.copyOf(bucket, bucketSize * 2);
+            bucket[bucketSize] = head;
+            bucket[bucketSize + 1] = idOne;
+            bucket[bucketSize + 2] = idTwo;
+            bucket[bucketSize + 3] = stamp;
+            bucketSizes[index] = bucketSize + 4;
+        }
+    }
+}
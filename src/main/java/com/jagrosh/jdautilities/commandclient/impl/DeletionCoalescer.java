@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient.impl;
+
+import net.dv8tion.jda.core.Permission;
+import net.dv8tion.jda.core.entities.MessageChannel;
+import net.dv8tion.jda.core.entities.TextChannel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers the deletion of {@link net.dv8tion.jda.core.entities.Message Message}s by ID per channel for a short
+ * window, so that Messages deleted close together are removed with as few requests as possible.
+ *
+ * <p>Once a channel's window is over, or it has buffered {@value #MAX_BULK_SIZE} Messages, its Messages are bulk
+ * deleted in batches of up to {@value #MAX_BULK_SIZE} if it is a {@link net.dv8tion.jda.core.entities.TextChannel
+ * TextChannel} the bot has {@link net.dv8tion.jda.core.Permission#MESSAGE_MANAGE MESSAGE_MANAGE} in.
+ * Messages that cannot be bulk deleted, either because of the channel or because they are too old, are
+ * deleted one at a time.
+ *
+ * @since  1.9
+ */
+final class DeletionCoalescer
+{
+    static final int MAX_BULK_SIZE = 100;
+    private static final long DISCORD_EPOCH = 1420070400000L;
+    private static final int TIMESTAMP_OFFSET = 22;
+    // Discord refuses to bulk delete Messages older than two weeks, a minute is left for requests in flight
+    private static final long MAX_BULK_AGE_MILLIS = TimeUnit.DAYS.toMillis(14) - TimeUnit.MINUTES.toMillis(1);
+
+    private final ScheduledExecutorService scheduler;
+    private final long windowMillis;
+    private final ConcurrentHashMap<Long, Batch> batches = new ConcurrentHashMap<>();
+
+    DeletionCoalescer(ScheduledExecutorService scheduler, long window, TimeUnit unit)
+    {
+        this.scheduler = scheduler;
+        this.windowMillis = unit.toMillis(window);
+    }
+
+    /**
+     * Buffers the deletion of a Message.
+     *
+     * @param  channel
+     *         The channel of the Message
+     * @param  messageId
+     *         The ID of the Message
+     */
+    void delete(MessageChannel channel, long messageId)
+    {
+        long channelId = channel.getIdLong();
+        boolean[] created = new boolean[1];
+        Batch batch = batches.compute(channelId, (id, existing) -> {
+            if(existing == null)
+            {
+                existing = new Batch(channel);
+                created[0] = true;
+            }
+            existing.add(messageId);
+            return existing;
+        });
+        if(batch.size >= MAX_BULK_SIZE)
+            flush(channelId, batch);
+        else if(created[0])
+        {
+            try
+            {
+                scheduler.schedule(() -> flush(channelId, batch), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            catch(RejectedExecutionException e)
+            {
+                flush(channelId, batch);
+            }
+        }
+    }
+
+    // Only flushes the batch it was scheduled for, a newer one has a flush of its own
+    private void flush(long channelId, Batch batch)
+    {
+        if(!batches.remove(channelId, batch))
+            return;
+        MessageChannel channel = batch.channel;
+        long[] ids = batch.ids;
+        int size = batch.size;
+        List<String> bulk = new ArrayList<>(Math.min(size, MAX_BULK_SIZE));
+        boolean canBulk = channel instanceof TextChannel && ((TextChannel) channel).getGuild().getSelfMember()
+                .hasPermission((TextChannel) channel, Permission.MESSAGE_MANAGE);
+        long oldest = System.currentTimeMillis() - MAX_BULK_AGE_MILLIS;
+        for(int i = 0; i < size; i++)
+        {
+            if(canBulk && (ids[i] >>> TIMESTAMP_OFFSET) + DISCORD_EPOCH > oldest)
+            {
+                bulk.add(Long.toUnsignedString(ids[i]));
+                if(bulk.size() == MAX_BULK_SIZE)
+                {
+                    deleteAll((TextChannel) channel, bulk);
+                    bulk = new ArrayList<>(Math.min(size - i - 1, MAX_BULK_SIZE));
+                }
+            }
+            else
+                channel.deleteMessageById(ids[i]).queue(unused -> {}, ignored -> {});
+        }
+        if(!bulk.isEmpty())
+            deleteAll((TextChannel) channel, bulk);
+    }
+
+    private static void deleteAll(TextChannel channel, List<String> ids)
+    {
+        if(ids.size() == 1)
+            channel.deleteMessageById(ids.get(0)).queue(unused -> {}, ignored -> {});
+        else
+            channel.deleteMessagesByIds(ids).queue(unused -> {}, ignored -> {});
+    }
+
+    // Only modified while computing its mapping, and only read once it is no longer mapped
+    private static final class Batch
+    {
+        private final MessageChannel channel;
+        private long[] ids = new long[4];
+        private int size;
+
+        private Batch(MessageChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        private void add(long id)
+        {
+            if(size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient.impl;
+
+import com.jagrosh.jdautilities.commandclient.GuildSettingsProvider;
+import com.jagrosh.jdautilities.entities.LongFixedSizeCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A bounded, read-through cache of the compiled prefixes of each {@link net.dv8tion.jda.core.entities.Guild Guild},
+ * loaded from a {@link com.jagrosh.jdautilities.commandclient.GuildSettingsProvider GuildSettingsProvider}.
+ *
+ * <p>Lookups never block: a Guild that is not cached yet is loaded on the provided {@link java.util.concurrent.Executor
+ * Executor} while the caller proceeds without any Guild prefixes, and entries older than the refresh interval keep being
+ * served while they are reloaded in the background.
+ * <br>Guilds without any prefixes, or whose prefixes failed to load, are cached as well so they are not requested again
+ * until the next refresh. Once full, the cache removes Guilds that have not been looked up recently.
+ *
+ * @since  1.9
+ */
+public class GuildPrefixCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(GuildPrefixCache.class);
+    private static final PrefixMatcher NO_PREFIXES = new PrefixMatcher(0L);
+
+    private final GuildSettingsProvider provider;
+    private final Executor executor;
+    private final long refreshNanos;
+    private final LongFixedSizeCache<Entry> entries;
+
+    /**
+     * Constructs an empty GuildPrefixCache.
+     *
+     * @param  provider
+     *         The GuildSettingsProvider to load prefixes from
+     * @param  executor
+     *         The Executor to load prefixes on, which should not be shared with time-sensitive tasks
+     *         as loads may block
+     * @param  maxSize
+     *         The maximum number of Guilds to cache
+     * @param  refresh
+     *         The time after which a cached entry is reloaded
+     * @param  unit
+     *         The unit of the refresh time
+     */
+    public GuildPrefixCache(GuildSettingsProvider provider, Executor executor, int maxSize, long refresh, TimeUnit unit)
+    {
+        if(maxSize < 1)
+            throw new IllegalArgumentException("Cache size must be at least 1!");
+        this.provider = provider;
+        this.executor = executor;
+        this.refreshNanos = unit.toNanos(refresh);
+        this.entries = new LongFixedSizeCache<>(maxSize);
+    }
+
+    /**
+     * Gets the compiled prefixes of the Guild with the provided ID, loading or
+     * refreshing them in the background if needed.
+     *
+     * @param  guildId
+     *         The ID of the Guild
+     *
+     * @return The compiled prefixes, or {@code null} if they have not been loaded yet
+     */
+    public PrefixMatcher get(long guildId)
+    {
+        Entry entry = entries.get(guildId);
+        if(entry == null)
+        {
+            Entry pending = new Entry(null, System.nanoTime());
+            entry = entries.computeIfAbsent(guildId, id -> pending);
+            if(entry == pending)
+            {
+                load(guildId, pending);
+                return null;
+            }
+        }
+        if(entry.matcher != null && System.nanoTime() - entry.loadedAt > refreshNanos)
+            load(guildId, entry);
+        return entry.matcher;
+    }
+
+    /**
+     * Removes the cached prefixes of the Guild with the provided ID, causing them
+     * to be loaded again the next time they are needed.
+     *
+     * @param  guildId
+     *         The ID of the Guild
+     */
+    public void invalidate(long guildId)
+    {
+        entries.remove(guildId);
+    }
+
+    private void load(long guildId, Entry entry)
+    {
+        if(!entry.loading.compareAndSet(false, true))
+            return;
+        try
+        {
+            executor.execute(() -> {
+                PrefixMatcher matcher;
+                try
+                {
+                    Collection<String> prefixes = provider.getPrefixes(guildId);
+                    matcher = prefixes == null || prefixes.isEmpty() ? NO_PREFIXES :
+                            new PrefixMatcher(0L, prefixes.toArray(new String[prefixes.size()]));
+                }
+                catch(Exception e)
+                {
+                    LOG.error("Failed to load the prefixes of Guild "+guildId+": ", e);
+                    matcher = entry.matcher == null ? NO_PREFIXES : entry.matcher;
+                }
+                // only replace the entry it was loaded for, it may have been invalidated meanwhile
+                entries.replace(guildId, entry, new Entry(matcher, System.nanoTime()));
+            });
+        }
+        catch(RejectedExecutionException e)
+        {
+            entry.loading.set(false);
+            if(entry.matcher == null)
+                entries.remove(guildId, entry);
+        }
+    }
+
+    private static final class Entry
+    {
+        private final PrefixMatcher matcher;
+        private final long loadedAt;
+        private final AtomicBoolean loading = new AtomicBoolean();
+
+        private Entry(PrefixMatcher matcher, long loadedAt)
+        {
+            this.matcher = matcher;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
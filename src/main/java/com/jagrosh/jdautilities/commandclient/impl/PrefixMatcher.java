@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable set of prefixes, compiled once by the {@link com.jagrosh.jdautilities.commandclient.impl.CommandClientImpl
+ * CommandClientImpl}, that can be checked against the raw content of a {@link net.dv8tion.jda.core.entities.Message Message}
+ * without creating any new Strings.
+ *
+ * <p>Prefixes are matched case-insensitively and in the order they were provided.
+ *
+ * @since  1.9
+ */
+public class PrefixMatcher
+{
+    private final String[] prefixes;
+    private final long selfId;
+
+    /**
+     * Constructs a PrefixMatcher for the provided prefixes.
+     *
+     * @param  selfId
+     *         The ID of the bot if mention prefixes were compiled, otherwise {@code 0}
+     * @param  prefixes
+     *         The prefixes to match, {@code null} or empty prefixes are ignored
+     */
+    public PrefixMatcher(long selfId, String... prefixes)
+    {
+        List<String> list = new ArrayList<>(prefixes.length);
+        for(String prefix : prefixes)
+        {
+            if(prefix!=null && !prefix.isEmpty())
+                list.add(prefix);
+        }
+        this.prefixes = list.toArray(new String[list.size()]);
+        this.selfId = selfId;
+    }
+
+    /**
+     * Creates the two mention prefixes ({@code <@id>} and {@code <@!id>}) for the bot with the provided ID.
+     *
+     * @param  selfId
+     *         The ID of the bot
+     *
+     * @return The mention prefixes
+     */
+    public static String[] mentions(long selfId)
+    {
+        return new String[]{"<@"+selfId+">", "<@!"+selfId+">"};
+    }
+
+    /**
+     * Gets the ID of the bot the mention prefixes of this matcher were compiled for.
+     *
+     * @return The ID of the bot, or {@code 0} if no mention prefixes were compiled
+     */
+    public long getSelfId()
+    {
+        return selfId;
+    }
+
+    /**
+     * Checks the provided content for any of the prefixes of this matcher.
+     *
+     * @param  content
+     *         The raw content to check
+     *
+     * @return The length of the first matching prefix, or {@code -1} if the content does not start with any prefix
+     */
+    public int match(String content)
+    {
+        for(String prefix : prefixes)
+        {
+            if(content.regionMatches(true, 0, prefix, 0, prefix.length()))
+                return prefix.length();
+        }
+        return -1;
+    }
+}
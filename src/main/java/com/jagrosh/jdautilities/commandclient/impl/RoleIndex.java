@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient.impl;
+
+import com.jagrosh.jdautilities.entities.LongFixedSizeCache;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Role;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Indexes the {@link net.dv8tion.jda.core.entities.Role Role}s of each {@link net.dv8tion.jda.core.entities.Guild
+ * Guild} by lower case name, so that the roles required by {@link com.jagrosh.jdautilities.commandclient.Command
+ * Command}s can be checked by ID.
+ *
+ * <p>Each {@link com.jagrosh.jdautilities.commandclient.impl.CommandClientImpl CommandClientImpl} has an index of its
+ * own. A Guild is indexed the first time it is looked up, and indexed again after the client invalidates it because
+ * one of its roles was created, renamed or deleted, or because the client left it.
+ * <br>The index holds a limited number of Guilds, removing those that have not been looked up recently, so Guilds
+ * whose events were missed are not held forever.
+ *
+ * @since  1.9
+ */
+final class RoleIndex
+{
+    private static final long[] NO_ROLES = new long[0];
+
+    private final LongFixedSizeCache<Snapshot> guilds;
+
+    /**
+     * Constructs an empty RoleIndex.
+     *
+     * @param  maxGuilds
+     *         The maximum number of Guilds to index at once
+     */
+    RoleIndex(int maxGuilds)
+    {
+        this.guilds = new LongFixedSizeCache<>(maxGuilds);
+    }
+
+    /**
+     * Indexes the roles of a Guild without keeping the index, for clients that
+     * do not have an index of their own.
+     *
+     * @param  guild
+     *         The Guild
+     *
+     * @return The index of the Guild's roles
+     */
+    static Snapshot uncached(Guild guild)
+    {
+        return new Snapshot(guild);
+    }
+
+    /**
+     * Gets the current index of a Guild's roles.
+     *
+     * @param  guild
+     *         The Guild
+     *
+     * @return The index of the Guild's roles
+     */
+    Snapshot of(Guild guild)
+    {
+        Snapshot snapshot = guilds.get(guild.getIdLong());
+        // computing holds off invalidation, so a snapshot of roles that changed meanwhile is not kept
+        return snapshot!=null ? snapshot : guilds.computeIfAbsent(guild.getIdLong(), id -> new Snapshot(guild));
+    }
+
+    /**
+     * Drops the index of a Guild, so it is indexed again on its next lookup.
+     *
+     * @param  guildId
+     *         The ID of the Guild
+     */
+    void invalidate(long guildId)
+    {
+        guilds.remove(guildId);
+    }
+
+    /**
+     * The roles of a Guild at one point in time.
+     */
+    static final class Snapshot
+    {
+        private final HashMap<String, long[]> byName = new HashMap<>();
+        // the sorted IDs matching each set of names, computed once per snapshot
+        private final ConcurrentHashMap<Object, long[]> resolved = new ConcurrentHashMap<>();
+
+        private Snapshot(Guild guild)
+        {
+            for(Role role : guild.getRoles())
+            {
+                byName.merge(role.getName().toLowerCase(), new long[]{role.getIdLong()}, (ids, id) -> {
+                    long[] merged = Arrays.copyOf(ids, ids.length+1);
+                    merged[ids.length] = id[0];
+                    return merged;
+                });
+            }
+        }
+
+        /**
+         * Gets the IDs of the roles matching any of a set of names.
+         *
+         * @param  key
+         *         Identifies the set of names, so their IDs are only resolved once per snapshot
+         * @param  names
+         *         The lower case names of the roles
+         *
+         * @return The sorted IDs of the matching roles
+         */
+        long[] resolve(Object key, String[] names)
+        {
+            long[] ids = resolved.get(key);
+            return ids!=null ? ids : resolved.computeIfAbsent(key, resolver(names));
+        }
+
+        private Function<Object, long[]> resolver(String[] names)
+        {
+            return key -> {
+                long[] ids = NO_ROLES;
+                for(String name : names)
+                {
+                    long[] matching = byName.get(name);
+                    if(matching==null)
+                        continue;
+                    int length = ids.length;
+                    ids = Arrays.copyOf(ids, length+matching.length);
+                    System.arraycopy(matching, 0, ids, length, matching.length);
+                }
+                Arrays.sort(ids);
+                return ids;
+            };
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient.impl;
+
+import com.jagrosh.jdautilities.entities.LongFixedSizeCache;
+import net.dv8tion.jda.core.entities.TextChannel;
+
+/**
+ * Caches the parsed {@link com.jagrosh.jdautilities.commandclient.impl.TopicTags TopicTags} of each
+ * {@link net.dv8tion.jda.core.entities.TextChannel TextChannel} by channel ID.
+ *
+ * <p>Each {@link com.jagrosh.jdautilities.commandclient.impl.CommandClientImpl CommandClientImpl} has a cache of its
+ * own, which it invalidates when a channel's topic changes or the channel is deleted.
+ * <br>Cached tags are kept along with the topic they were parsed from, so a changed topic is parsed again even if
+ * the client missed its event. The cache holds a limited number of channels, removing those that have not been
+ * looked up recently.
+ *
+ * @since  1.9
+ */
+final class TopicTagCache
+{
+    private final LongFixedSizeCache<TopicTags> channels;
+
+    /**
+     * Constructs an empty TopicTagCache.
+     *
+     * @param  maxChannels
+     *         The maximum number of channels to cache the topic tags of at once
+     */
+    TopicTagCache(int maxChannels)
+    {
+        this.channels = new LongFixedSizeCache<>(maxChannels);
+    }
+
+    /**
+     * Parses the topic tags of a TextChannel without caching them, for clients that
+     * do not have a cache of their own.
+     *
+     * @param  channel
+     *         The TextChannel
+     *
+     * @return The topic tags of the TextChannel
+     */
+    static TopicTags uncached(TextChannel channel)
+    {
+        return TopicTags.of(channel.getTopic());
+    }
+
+    /**
+     * Gets the topic tags of a TextChannel, parsing its topic if it has not been parsed yet.
+     *
+     * @param  channel
+     *         The TextChannel
+     *
+     * @return The topic tags of the TextChannel
+     */
+    TopicTags of(TextChannel channel)
+    {
+        String topic = channel.getTopic();
+        if(topic==null || topic.isEmpty())
+            return TopicTags.of(topic);
+        TopicTags tags = channels.get(channel.getIdLong());
+        if(tags!=null && tags.isOf(topic))
+            return tags;
+        tags = TopicTags.of(topic);
+        channels.add(channel.getIdLong(), tags);
+        return tags;
+    }
+
+    /**
+     * Drops the topic tags of a channel, so its topic is parsed again on its next lookup.
+     *
+     * @param  channelId
+     *         The ID of the channel
+     */
+    void invalidate(long channelId)
+    {
+        channels.remove(channelId);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commandclient.impl;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The topic tags of a {@link net.dv8tion.jda.core.entities.TextChannel TextChannel}, parsed once from its
+ * topic and shared by every {@link com.jagrosh.jdautilities.commandclient.Command Command} checking them.
+ *
+ * <p>Parsed tags are cached per client by a {@link com.jagrosh.jdautilities.commandclient.impl.TopicTagCache
+ * TopicTagCache}, along with the topic they were parsed from.
+ *
+ * @since  1.9
+ */
+public final class TopicTags
+{
+    private static final TopicTags NONE = new TopicTags(null, Collections.emptySet(), Collections.emptySet());
+
+    private final String topic;
+    private final Set<String> allowed;
+    private final Set<String> denied;
+    private final boolean allDenied;
+
+    private TopicTags(String topic, Set<String> allowed, Set<String> denied)
+    {
+        this.topic = topic;
+        this.allowed = allowed;
+        this.denied = denied;
+        this.allDenied = denied.contains("all");
+    }
+
+    /**
+     * Parses the topic tags of a topic.
+     *
+     * @param  topic
+     *         The topic, may be {@code null}
+     *
+     * @return The topic tags of the topic
+     */
+    static TopicTags of(String topic)
+    {
+        return topic==null || topic.isEmpty() ? NONE : parse(topic);
+    }
+
+    // Whether these tags were parsed from the topic
+    boolean isOf(String topic)
+    {
+        return this.topic==topic || (this.topic!=null && this.topic.equals(topic));
+    }
+
+    /**
+     * Checks whether the topic tags allow a command, with the command's own tags taking precedence
+     * over those of its category, and both over {-{@code all}}.
+     *
+     * @param  name
+     *         The lower case name of the command
+     * @param  category
+     *         The lower case name of the command's category, or {@code null} if it has none
+     *
+     * @return {@code true} if the command is allowed
+     */
+    public boolean isAllowed(String name, String category)
+    {
+        if(allowed.contains(name))
+            return true;
+        if(denied.contains(name))
+            return false;
+        if(category!=null)
+        {
+            if(allowed.contains(category))
+                return true;
+            if(denied.contains(category))
+                return false;
+        }
+        return !allDenied;
+    }
+
+    // Every {tag} in the topic, including ones that start inside another, as in "{{tag}"
+    private static TopicTags parse(String topic)
+    {
+        String lower = topic.toLowerCase();
+        Set<String> allowed = new HashSet<>();
+        Set<String> denied = new HashSet<>();
+        int close = -1;
+        for(int open = lower.indexOf('{'); open>=0; open = lower.indexOf('{', open+1))
+        {
+            if(close<=open)
+            {
+                close = lower.indexOf('}', open+1);
+                if(close<0)
+                    break;
+            }
+            if(lower.charAt(open+1)=='-')
+                denied.add(lower.substring(open+2, close));
+            else
+                allowed.add(lower.substring(open+1, close));
+        }
+        return new TopicTags(topic, allowed, denied);
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.entities;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * A segment of a {@link com.jagrosh.jdautilities.entities.FixedSizeCache FixedSizeCache} or
+ * {@link com.jagrosh.jdautilities.entities.LongFixedSizeCache LongFixedSizeCache}: a fixed-size linear probing
+ * table guarded by a {@link java.util.concurrent.locks.StampedLock StampedLock}, evicting with a CLOCK hand
+ * that sweeps over its slots.
+ *
+ * <p>Subclasses only store keys. So that {@code long} keys are never boxed, every operation takes both an
+ * Object key and a {@code long} key, and each subclass ignores the one it does not store.
+ * <br>{@code null} values are stored as a marker, so a slot holding one is still found.
+ *
+ * @param  <V>
+ *         The type of values
+ */
+abstract class ClockSegment<V>
+{
+    private static final Object NULL = new Object();
+
+    private final StampedLock lock = new StampedLock();
+    private final int capacity;
+    final int mask;
+    private final Object[] values;
+    // only a hint for eviction, so it is set by reads without locking
+    private final boolean[] referenced;
+    private volatile int size;
+    private int hand;
+
+    ClockSegment(int capacity)
+    {
+        int length = tableSize(capacity);
+        this.capacity = capacity;
+        this.mask = length - 1;
+        this.values = new Object[length];
+        this.referenced = new boolean[length];
+    }
+
+    static int segmentCount(int size)
+    {
+        int count = Integer.highestOneBit(Math.max(size / 64, 1));
+        return Math.min(count, 16);
+    }
+
+    static int tableSize(int capacity)
+    {
+        // at most half full, so probes stay short
+        return Integer.highestOneBit(Math.max(capacity, 1)) << 2;
+    }
+
+    static int segmentIndex(int hash, int segments)
+    {
+        return (hash >>> 28) & (segments - 1);
+    }
+
+    // Finds the slot of a key, or -1. May read a table that is being written to, so it must never
+    // probe more than the whole table.
+    abstract int find(Object key, long longKey, int hash);
+
+    abstract boolean isUsed(int index);
+
+    // The hash of the key in a used slot
+    abstract int hashAt(int index);
+
+    abstract void setKey(int index, Object key, long longKey, int hash);
+
+    abstract void moveKey(int from, int to);
+
+    abstract void clearKey(int index);
+
+    int size()
+    {
+        return size;
+    }
+
+    // Gets the stored value, which is the marker for null, or null if the key is absent
+    Object lookup(Object key, long longKey, int hash)
+    {
+        long stamp = lock.tryOptimisticRead();
+        int index;
+        Object value;
+        boolean valid;
+        try
+        {
+            index = find(key, longKey, hash);
+            value = index < 0 ? null : values[index];
+            valid = lock.validate(stamp);
+        }
+        catch(RuntimeException ex)
+        {
+            // equals() of a key that is being written to may throw, so retry under the lock
+            index = -1;
+            value = null;
+            valid = false;
+        }
+        if(!valid)
+        {
+            stamp = lock.readLock();
+            try
+            {
+                index = find(key, longKey, hash);
+                value = index < 0 ? null : values[index];
+            }
+            finally
+            {
+                lock.unlockRead(stamp);
+            }
+        }
+        if(index >= 0)
+            referenced[index] = true;
+        return value;
+    }
+
+    V get(Object key, long longKey, int hash)
+    {
+        return unmask(lookup(key, longKey, hash));
+    }
+
+    // Puts the value, or the computed value if the key is absent and a supplier is provided
+    V put(Object key, long longKey, int hash, V value, Supplier<? extends V> supplier)
+    {
+        long stamp = lock.writeLock();
+        try
+        {
+            int index = find(key, longKey, hash);
+            if(index >= 0)
+            {
+                referenced[index] = true;
+                if(supplier != null)
+                    return unmask(values[index]);
+                values[index] = mask(value);
+                return value;
+            }
+            if(supplier != null)
+            {
+                value = supplier.get();
+                if(value == null)
+                    return null;
+            }
+            insert(key, longKey, hash, value);
+            return value;
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    V merge(Object key, long longKey, int hash, V value, BinaryOperator<V> remapping)
+    {
+        long stamp = lock.writeLock();
+        try
+        {
+            int index = find(key, longKey, hash);
+            if(index >= 0)
+            {
+                referenced[index] = true;
+                V merged = remapping.apply(unmask(values[index]), value);
+                if(merged == null)
+                    throw new IllegalArgumentException("Merged value cannot be null!");
+                values[index] = merged;
+                return merged;
+            }
+            insert(key, longKey, hash, value);
+            return value;
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Replaces the value only if it is still the expected one, compared by identity
+    boolean replace(Object key, long longKey, int hash, V expected, V value)
+    {
+        long stamp = lock.writeLock();
+        try
+        {
+            int index = find(key, longKey, hash);
+            if(index < 0 || values[index] != mask(expected))
+                return false;
+            values[index] = mask(value);
+            return true;
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    V remove(Object key, long longKey, int hash)
+    {
+        long stamp = lock.writeLock();
+        try
+        {
+            int index = find(key, longKey, hash);
+            if(index < 0)
+                return null;
+            V value = unmask(values[index]);
+            delete(index);
+            return value;
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Removes the key only if its value is still the expected one, compared by identity
+    boolean remove(Object key, long longKey, int hash, V expected)
+    {
+        long stamp = lock.writeLock();
+        try
+        {
+            int index = find(key, longKey, hash);
+            if(index < 0 || values[index] != mask(expected))
+                return false;
+            delete(index);
+            return true;
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void insert(Object key, long longKey, int hash, V value)
+    {
+        if(size >= capacity)
+            evict();
+        int index = hash & mask;
+        while(isUsed(index))
+            index = (index + 1) & mask;
+        setKey(index, key, longKey, hash);
+        values[index] = mask(value);
+        referenced[index] = false;
+        size++;
+    }
+
+    private void evict()
+    {
+        // reads may keep marking elements, so after two sweeps the hand takes whatever it points at
+        for(int swept = 0; ; swept++)
+        {
+            if(isUsed(hand))
+            {
+                if(!referenced[hand] || swept > 2 * mask)
+                {
+                    delete(hand);
+                    return;
+                }
+                referenced[hand] = false;
+            }
+            hand = (hand + 1) & mask;
+        }
+    }
+
+    // Backward shift deletion, so no tombstones are left behind
+    private void delete(int index)
+    {
+        int next = index;
+        while(true)
+        {
+            next = (next + 1) & mask;
+            if(!isUsed(next))
+                break;
+            int home = hashAt(next) & mask;
+            if(((next - home) & mask) >= ((next - index) & mask))
+            {
+                moveKey(next, index);
+                values[index] = values[next];
+                referenced[index] = referenced[next];
+                index = next;
+            }
+        }
+        clearKey(index);
+        values[index] = null;
+        size--;
+    }
+
+    private static Object mask(Object value)
+    {
+        return value == null ? NULL : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V unmask(Object value)
+    {
+        return value == NULL ? null : (V) value;
+    }
+}
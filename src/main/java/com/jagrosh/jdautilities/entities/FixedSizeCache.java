@@ -15,94 +15,114 @@
  */
 package com.jagrosh.jdautilities.entities;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.function.Function;
 
 /**
- * A simple first-in-first-out key-value storage that uses a {@link java.util.HashMap HashMap} to
- * store keys and values while simultaneously registering the keys to an array to maintain a specified
- * maximum capacity.
+ * A thread-safe key-value storage that holds at most a specified number of elements, removing the
+ * least recently used ones to make room for new ones.
  *
- * <p>As new elements are inserted into the cache, older ones may be removed as a result of the cache
- * being at the maximum capacity set at instantiation.
+ * <p>The cache is split into segments, each a fixed-size open addressing table guarded by its own lock.
+ * Reads do not lock at all unless they race with a write to the same segment, and recently read elements
+ * are spared from removal using the CLOCK algorithm, an approximation of least-recently-used eviction.
+ * <br>Keys and values may be {@code null}. As {@link #get(Object)} returns {@code null} for absent keys
+ * as well, use {@link #contains(Object)} to tell the two apart.
  *
- * <p>This entity is intended for usage in linked deletion which is implemented in
- * {@link com.jagrosh.jdautilities.commandclient.impl.CommandClientImpl CommandClientImpl}.
+ * <p>For {@code long} keys such as Message IDs, {@link com.jagrosh.jdautilities.entities.LongFixedSizeCache
+ * LongFixedSizeCache} avoids boxing them, and is what linked deletion in
+ * {@link com.jagrosh.jdautilities.commandclient.impl.CommandClientImpl CommandClientImpl} uses.
  *
  * @since  1.3
  * @author Michael Ritter
  */
 public class FixedSizeCache<K, V> {
 
-    private final Map<K, V> map;
-    private final K[] keys;
-    private int currIndex = 0;
+    // stands in for the null key, as empty slots are null
+    private static final Object NULL_KEY = new Object();
+
+    private final Segment<V>[] segments;
+    private final int maxSize;
 
     /**
      * Constructs a new {@link com.jagrosh.jdautilities.entities.FixedSizeCache FixedSizeCache}
      * with a set maximum capacity.
      *
-     * <p>This entity runs on the basis of "first-in-first-out", meaning that elements inserted
-     * into the newly constructed cache will remove the oldest ones if the maximum size is
-     * already being occupied.
+     * <p>Once the maximum capacity is occupied, elements inserted into the newly constructed
+     * cache will remove ones that have not been used recently.
      *
      * @param  size
      *         The size of the FixedSizeCache to be created.
      */
+    @SuppressWarnings("unchecked")
     public FixedSizeCache(int size)
     {
-        this.map = new HashMap<>();
         if(size < 1)
             throw new IllegalArgumentException("Cache size must be at least 1!");
-        this.keys = (K[]) new Object[size];
+        this.maxSize = size;
+        int count = ClockSegment.segmentCount(size);
+        this.segments = new Segment[count];
+        for(int i = 0; i < count; i++)
+            segments[i] = new Segment<>(size / count + (i < size % count ? 1 : 0));
     }
 
     /**
      * Adds a key and pairs it with a value.
      *
-     * <p>If this {@link com.jagrosh.jdautilities.entities.FixedSizeCache FixedSizeCache}
-     * is already at maximum occupation, this will remove the oldest element.
-     *
-     * <p><b>NOTE:</b> Any inner workings of {@link java.util.HashMap#put(Object, Object)
-     * HashMap#put(Object, Object)} <b>still apply</b> when using this method!
-     * <br>It is recommended anyone using this consult the documentation for HashMap.
+     * <p>If the key is already present, its value is replaced. Otherwise, if this
+     * {@link com.jagrosh.jdautilities.entities.FixedSizeCache FixedSizeCache} is already at
+     * maximum occupation, this will remove an element that has not been used recently.
      *
      * @param  key
-     *         The key to pair with the value
+     *         The key to pair with the value, may be {@code null}
      * @param  value
-     *         The value to pair with the key
-     *
-     * @see    java.util.HashMap#put(Object, Object) HashMap#put(Object, Object)
+     *         The value to pair with the key, may be {@code null}
      */
     public void add(K key, V value)
     {
-        if(keys[currIndex] != null)
-        {
-            map.remove(keys[currIndex]);
-        }
-        map.put(key, value);
-        keys[currIndex] = key;
-        currIndex = (currIndex + 1) % keys.length;
+        Object k = maskKey(key);
+        int hash = hash(k);
+        segmentFor(hash).put(k, 0L, hash, value, null);
+    }
+
+    /**
+     * Gets the value paired with a key, pairing it with a computed value first if there is none.
+     *
+     * <p>The value is computed at most once per key while it is cached, under the lock of its segment,
+     * so the Function should be short and must not use this cache.
+     * <br>If the Function returns {@code null}, nothing is paired with the key. A key already paired with
+     * {@code null} is left as it is.
+     *
+     * @param  key
+     *         The key to get the value of
+     * @param  function
+     *         The Function to compute a value with if the key is not present
+     *
+     * @return The value paired with the key
+     *
+     * @since  1.9
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> function)
+    {
+        Object k = maskKey(key);
+        int hash = hash(k);
+        ClockSegment<V> segment = segmentFor(hash);
+        V value = segment.get(k, 0L, hash);
+        return value != null ? value : segment.put(k, 0L, hash, null, () -> function.apply(key));
     }
 
     /**
      * Checks if this {@link com.jagrosh.jdautilities.entities.FixedSizeCache FixedSizeCache}
      * contains a key.
      *
-     * <p><b>NOTE:</b> Any inner workings of {@link java.util.HashMap#containsKey(Object)
-     * HashMap#containsKey(Object)} <b>still apply</b> when using this method!
-     * <br>It is recommended anyone using this consult the documentation for HashMap.
-     *
      * @param  key
      *         The key to check for
      *
      * @return {@code true} if the FixedSizeCache contains a key, else {@code false}
-     *
-     * @see    java.util.HashMap#containsKey(Object) HashMap#containsKey(Object)
      */
     public boolean contains(K key)
     {
-        return map.containsKey(key);
+        Object k = maskKey(key);
+        int hash = hash(k);
+        return segmentFor(hash).lookup(k, 0L, hash) != null;
     }
 
     /**
@@ -110,20 +130,139 @@ public class FixedSizeCache<K, V> {
      * FixedSizeCache} corresponding to the specified key, or {@code null} if there is no
      * corresponding value to be retrieved.
      *
-     * <p><b>NOTE:</b> Any inner workings of {@link java.util.HashMap#get(Object)
-     * HashMap#get(Object)} <b>still apply</b> when using this method!
-     * <br>It is recommended anyone using this consult the documentation for HashMap.
-     *
      * @param  key
      *         The key to retrieve a value for
      *
      * @return A value corresponding to the provided key, or {@code null} if there was no
      *         value to get.
-     *
-     * @see    java.util.HashMap#get(Object) HashMap#get(Object)
      */
     public V get(K key)
     {
-        return map.get(key);
+        Object k = maskKey(key);
+        int hash = hash(k);
+        return segmentFor(hash).get(k, 0L, hash);
+    }
+
+    /**
+     * Removes a key and the value paired with it.
+     *
+     * @param  key
+     *         The key to remove
+     *
+     * @return The value that was paired with the key, or {@code null} if there was none
+     *
+     * @since  1.9
+     */
+    public V remove(K key)
+    {
+        Object k = maskKey(key);
+        int hash = hash(k);
+        return segmentFor(hash).remove(k, 0L, hash);
+    }
+
+    /**
+     * Gets the number of elements currently in this {@link com.jagrosh.jdautilities.entities.FixedSizeCache
+     * FixedSizeCache}.
+     *
+     * @return The number of elements
+     *
+     * @since  1.9
+     */
+    public int size()
+    {
+        int size = 0;
+        for(Segment<V> segment : segments)
+            size += segment.size();
+        return size;
+    }
+
+    /**
+     * Gets the maximum number of elements this {@link com.jagrosh.jdautilities.entities.FixedSizeCache
+     * FixedSizeCache} holds.
+     *
+     * @return The maximum number of elements
+     *
+     * @since  1.9
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    private static Object maskKey(Object key)
+    {
+        return key == null ? NULL_KEY : key;
+    }
+
+    private ClockSegment<V> segmentFor(int hash)
+    {
+        return segments[ClockSegment.segmentIndex(hash, segments.length)];
+    }
+
+    private static int hash(Object key)
+    {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Segment<V> extends ClockSegment<V>
+    {
+        private final Object[] keys;
+        private final int[] hashes;
+
+        private Segment(int capacity)
+        {
+            super(capacity);
+            this.keys = new Object[mask + 1];
+            this.hashes = new int[mask + 1];
+        }
+
+        @Override
+        int find(Object key, long longKey, int hash)
+        {
+            int index = hash & mask;
+            for(int probes = 0; probes <= mask; probes++)
+            {
+                Object k = keys[index];
+                if(k == null)
+                    return -1;
+                if(hashes[index] == hash && k.equals(key))
+                    return index;
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        @Override
+        boolean isUsed(int index)
+        {
+            return keys[index] != null;
+        }
+
+        @Override
+        int hashAt(int index)
+        {
+            return hashes[index];
+        }
+
+        @Override
+        void setKey(int index, Object key, long longKey, int hash)
+        {
+            keys[index] = key;
+            hashes[index] = hash;
+        }
+
+        @Override
+        void moveKey(int from, int to)
+        {
+            keys[to] = keys[from];
+            hashes[to] = hashes[from];
+        }
+
+        @Override
+        void clearKey(int index)
+        {
+            keys[index] = null;
+        }
     }
-}
\ No newline at end of file
+}
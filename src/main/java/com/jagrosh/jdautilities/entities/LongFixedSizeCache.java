@@ -0,0 +1,307 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.entities;
+
+import java.util.function.BinaryOperator;
+import java.util.function.LongFunction;
+
+/**
+ * A {@link com.jagrosh.jdautilities.entities.FixedSizeCache FixedSizeCache} specialized for {@code long} keys,
+ * such as the IDs of {@link net.dv8tion.jda.core.entities.Message Message}s, which are stored without boxing.
+ *
+ * <p>The cache is split into segments, each a fixed-size open addressing table guarded by its own lock.
+ * Reads do not lock at all unless they race with a write to the same segment, and recently read elements
+ * are spared from removal using the CLOCK algorithm, an approximation of least-recently-used eviction.
+ * <br>Values may be {@code null}. As {@link #get(long)} returns {@code null} for absent keys as well,
+ * use {@link #contains(long)} to tell the two apart.
+ *
+ * @param  <V>
+ *         The type of values
+ *
+ * @since  1.9
+ */
+public class LongFixedSizeCache<V>
+{
+    private final Segment<V>[] segments;
+    private final int maxSize;
+
+    /**
+     * Constructs a new {@link com.jagrosh.jdautilities.entities.LongFixedSizeCache LongFixedSizeCache}
+     * with a set maximum capacity.
+     *
+     * <p>Once the maximum capacity is occupied, elements inserted into the newly constructed
+     * cache will remove ones that have not been used recently.
+     *
+     * @param  size
+     *         The size of the LongFixedSizeCache to be created.
+     */
+    @SuppressWarnings("unchecked")
+    public LongFixedSizeCache(int size)
+    {
+        if(size < 1)
+            throw new IllegalArgumentException("Cache size must be at least 1!");
+        this.maxSize = size;
+        int count = ClockSegment.segmentCount(size);
+        this.segments = new Segment[count];
+        for(int i = 0; i < count; i++)
+            segments[i] = new Segment<>(size / count + (i < size % count ? 1 : 0));
+    }
+
+    /**
+     * Adds a key and pairs it with a value.
+     *
+     * <p>If the key is already present, its value is replaced. Otherwise, if this
+     * {@link com.jagrosh.jdautilities.entities.LongFixedSizeCache LongFixedSizeCache} is already at
+     * maximum occupation, this will remove an element that has not been used recently.
+     *
+     * @param  key
+     *         The key to pair with the value
+     * @param  value
+     *         The value to pair with the key, may be {@code null}
+     */
+    public void add(long key, V value)
+    {
+        int hash = hash(key);
+        segmentFor(hash).put(null, key, hash, value, null);
+    }
+
+    /**
+     * Gets the value paired with a key, pairing it with a computed value first if there is none.
+     *
+     * <p>The value is computed at most once per key while it is cached, under the lock of its segment,
+     * so the LongFunction should be short and must not use this cache.
+     * <br>If the LongFunction returns {@code null}, nothing is paired with the key. A key already paired with
+     * {@code null} is left as it is.
+     *
+     * @param  key
+     *         The key to get the value of
+     * @param  function
+     *         The LongFunction to compute a value with if the key is not present
+     *
+     * @return The value paired with the key
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> function)
+    {
+        int hash = hash(key);
+        ClockSegment<V> segment = segmentFor(hash);
+        V value = segment.get(null, key, hash);
+        return value != null ? value : segment.put(null, key, hash, null, () -> function.apply(key));
+    }
+
+    /**
+     * Pairs a key with a value, or with the value combined with the one already paired with the key.
+     *
+     * <p>The values are combined under the lock of the segment of the key, so the BinaryOperator should be short
+     * and must not use this cache. Values should be immutable, as the paired value is replaced rather than changed.
+     *
+     * @param  key
+     *         The key to pair with the value
+     * @param  value
+     *         The value to pair with the key if it is not present, or to combine with the present value
+     * @param  remapping
+     *         The BinaryOperator combining the present value with the provided one
+     *
+     * @return The value now paired with the key
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the value, or the value the BinaryOperator combines it into, is {@code null}
+     */
+    public V merge(long key, V value, BinaryOperator<V> remapping)
+    {
+        if(value == null)
+            throw new IllegalArgumentException("Value cannot be null!");
+        int hash = hash(key);
+        return segmentFor(hash).merge(null, key, hash, value, remapping);
+    }
+
+    /**
+     * Checks if this {@link com.jagrosh.jdautilities.entities.LongFixedSizeCache LongFixedSizeCache}
+     * contains a key.
+     *
+     * @param  key
+     *         The key to check for
+     *
+     * @return {@code true} if the LongFixedSizeCache contains a key, else {@code false}
+     */
+    public boolean contains(long key)
+    {
+        int hash = hash(key);
+        return segmentFor(hash).lookup(null, key, hash) != null;
+    }
+
+    /**
+     * Retrieves a value from this {@link com.jagrosh.jdautilities.entities.LongFixedSizeCache
+     * LongFixedSizeCache} corresponding to the specified key, or {@code null} if there is no
+     * corresponding value to be retrieved.
+     *
+     * @param  key
+     *         The key to retrieve a value for
+     *
+     * @return A value corresponding to the provided key, or {@code null} if there was no
+     *         value to get.
+     */
+    public V get(long key)
+    {
+        int hash = hash(key);
+        return segmentFor(hash).get(null, key, hash);
+    }
+
+    /**
+     * Removes a key and the value paired with it.
+     *
+     * @param  key
+     *         The key to remove
+     *
+     * @return The value that was paired with the key, or {@code null} if there was none
+     */
+    public V remove(long key)
+    {
+        int hash = hash(key);
+        return segmentFor(hash).remove(null, key, hash);
+    }
+
+    /**
+     * Pairs a key with a value, only if it is still paired with an expected value.
+     *
+     * <p>Values are compared by identity, so this can tell a value apart from an equal one that replaced it.
+     *
+     * @param  key
+     *         The key to pair with the value
+     * @param  expected
+     *         The value the key is expected to be paired with
+     * @param  value
+     *         The value to pair with the key
+     *
+     * @return {@code true} if the value was replaced, else {@code false}
+     */
+    public boolean replace(long key, V expected, V value)
+    {
+        int hash = hash(key);
+        return segmentFor(hash).replace(null, key, hash, expected, value);
+    }
+
+    /**
+     * Removes a key, only if it is still paired with an expected value.
+     *
+     * <p>Values are compared by identity, so this can tell a value apart from an equal one that replaced it.
+     *
+     * @param  key
+     *         The key to remove
+     * @param  expected
+     *         The value the key is expected to be paired with
+     *
+     * @return {@code true} if the key was removed, else {@code false}
+     */
+    public boolean remove(long key, V expected)
+    {
+        int hash = hash(key);
+        return segmentFor(hash).remove(null, key, hash, expected);
+    }
+
+    /**
+     * Gets the number of elements currently in this {@link com.jagrosh.jdautilities.entities.LongFixedSizeCache
+     * LongFixedSizeCache}.
+     *
+     * @return The number of elements
+     */
+    public int size()
+    {
+        int size = 0;
+        for(Segment<V> segment : segments)
+            size += segment.size();
+        return size;
+    }
+
+    /**
+     * Gets the maximum number of elements this {@link com.jagrosh.jdautilities.entities.LongFixedSizeCache
+     * LongFixedSizeCache} holds.
+     *
+     * @return The maximum number of elements
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    private ClockSegment<V> segmentFor(int hash)
+    {
+        return segments[ClockSegment.segmentIndex(hash, segments.length)];
+    }
+
+    private static int hash(long key)
+    {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private static final class Segment<V> extends ClockSegment<V>
+    {
+        private final long[] keys;
+        private final boolean[] used;
+
+        private Segment(int capacity)
+        {
+            super(capacity);
+            this.keys = new long[mask + 1];
+            this.used = new boolean[mask + 1];
+        }
+
+        @Override
+        int find(Object key, long longKey, int hash)
+        {
+            int index = hash & mask;
+            for(int probes = 0; probes <= mask; probes++)
+            {
+                if(!used[index])
+                    return -1;
+                if(keys[index] == longKey)
+                    return index;
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        @Override
+        boolean isUsed(int index)
+        {
+            return used[index];
+        }
+
+        @Override
+        int hashAt(int index)
+        {
+            return hash(keys[index]);
+        }
+
+        @Override
+        void setKey(int index, Object key, long longKey, int hash)
+        {
+            keys[index] = longKey;
+            used[index] = true;
+        }
+
+        @Override
+        void moveKey(int from, int to)
+        {
+            keys[to] = keys[from];
+        }
+
+        @Override
+        void clearKey(int index)
+        {
+            used[index] = false;
+        }
+    }
+}
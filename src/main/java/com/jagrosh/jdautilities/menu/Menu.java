@@ -63,6 +63,21 @@ public abstract class Menu {
      */
     public abstract void display(Message message);
 
+    /**
+     * Gets the ID of the {@link net.dv8tion.jda.core.entities.User User} this Menu is limited to, which its
+     * waiters count towards the per-User cap of the {@link com.jagrosh.jdautilities.waiter.EventWaiter EventWaiter} for.
+     *
+     * @return The ID of the only User that can use this Menu, or {@code 0} if more than one User can use it
+     *
+     * @since  1.9
+     *
+     * @see    com.jagrosh.jdautilities.waiter.EventWaiterBuilder#setMaxWaitersPerUser(int)
+     */
+    protected long getWaiterUserId()
+    {
+        return users.size()==1 && roles.isEmpty() ? users.iterator().next().getIdLong() : 0L;
+    }
+
     /**
      * This method was not officially documented before 1.9 when it was marked
      * as deprecated.<p>
@@ -100,9 +100,7 @@ public class ButtonMenu extends Menu {
                     r.queue();
                 else
                     r.queue(v -> {
-                        waiter.waitForEvent(MessageReactionAddEvent.class, event -> {
-                            if(!event.getMessageId().equals(m.getId()))
-                                return false;
+                        waiter.waitForEvent(MessageReactionAddEvent.class, EventWaiter.Route.MESSAGE, m.getIdLong(), getWaiterUserId(), m.getChannel().getIdLong(), event -> {
                             String re = event.getReactionEmote().isEmote()
                                     ? event.getReactionEmote().getId()
                                     : event.getReactionEmote().getName();
@@ -148,7 +148,8 @@ public class OrderedMenu extends Menu {
     
     private void waitGeneric(Message m)
     {
-        waiter.waitForEvent(Event.class, e -> {
+        // both reactions to the menu and replies to it happen in the menu's channel
+        waiter.waitForEvent(Event.class, EventWaiter.Route.CHANNEL, m.getChannel().getIdLong(), getWaiterUserId(), m.getChannel().getIdLong(), e -> {
                 if(e instanceof MessageReactionAddEvent)
                     return isValidReaction(m, (MessageReactionAddEvent)e);
                 if(e instanceof MessageReceivedEvent)
@@ -178,7 +179,7 @@ public class OrderedMenu extends Menu {
     
     private void waitReactionOnly(Message m)
     {
-        waiter.waitForEvent(MessageReactionAddEvent.class, e -> {
+        waiter.waitForEvent(MessageReactionAddEvent.class, EventWaiter.Route.MESSAGE, m.getIdLong(), getWaiterUserId(), m.getChannel().getIdLong(), e -> {
                 return isValidReaction(m, e);
             }, e -> {
                 m.delete().queue();
@@ -160,9 +160,7 @@ public class SelectionDialog extends Menu {
     
     private void selectionDialog(Message message, int selection)
     {
-        waiter.waitForEvent(MessageReactionAddEvent.class, event -> {
-            if(!event.getMessageId().equals(message.getId()))
-                return false;
+        waiter.waitForEvent(MessageReactionAddEvent.class, EventWaiter.Route.MESSAGE, message.getIdLong(), getWaiterUserId(), message.getChannel().getIdLong(), event -> {
             if(!(UP.equals(event.getReactionEmote().getName())
                     || DOWN.equals(event.getReactionEmote().getName())
                     || CANCEL.equals(event.getReactionEmote().getName())
@@ -155,9 +155,7 @@ public class Slideshow extends Menu {
     
     private void pagination(Message message, int pageNum)
     {
-        waiter.waitForEvent(MessageReactionAddEvent.class, (MessageReactionAddEvent event) -> {
-            if(!event.getMessageId().equals(message.getId()))
-                return false;
+        waiter.waitForEvent(MessageReactionAddEvent.class, EventWaiter.Route.MESSAGE, message.getIdLong(), getWaiterUserId(), message.getChannel().getIdLong(), (MessageReactionAddEvent event) -> {
             if(!(LEFT.equals(event.getReactionEmote().getName())
                     || STOP.equals(event.getReactionEmote().getName())
                     || RIGHT.equals(event.getReactionEmote().getName())))
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.waiter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import net.dv8tion.jda.core.events.Event;
+
+/**
+ * A bounded sequence of {@link net.dv8tion.jda.core.events.Event Event}s matched by an
+ * {@link com.jagrosh.jdautilities.waiter.EventWaiter EventWaiter}, retrieved one at a time as
+ * {@link java.util.concurrent.CompletableFuture CompletableFuture}s.
+ *
+ * <p>A stream ends once it has received its limit of Events, once its timeout elapses, or once it is
+ * {@link #close() closed}. Events received before the end can still be retrieved after it, after which
+ * {@link #next()} returns futures completed with a {@link java.util.NoSuchElementException NoSuchElementException}.
+ *
+ * <p>This makes multi-step dialogs simple to compose:
+ * <pre><code>
+ * EventStream&lt;MessageReceivedEvent&gt; answers = waiter.stream(MessageReceivedEvent.class,
+ *         EventWaiter.Route.USER, user.getIdLong(), e -&gt; true, 3, Duration.ofMinutes(1));
+ * answers.next().thenCompose(name -&gt; answers.next()).thenAccept(age -&gt; ...);
+ * </code></pre>
+ *
+ * <p>Streams should be closed once they are no longer needed, so their waiter is freed immediately
+ * instead of when it times out.
+ *
+ * @param  <T>
+ *         The type of Event in the stream
+ *
+ * @since  1.9
+ *
+ * @see    com.jagrosh.jdautilities.waiter.EventWaiter#stream(Class, java.util.function.Predicate, int, java.time.Duration)
+ */
+public class EventStream<T extends Event> implements AutoCloseable
+{
+    private final int limit;
+    private final ArrayDeque<T> buffered = new ArrayDeque<>();
+    private final ArrayDeque<CompletableFuture<T>> pending = new ArrayDeque<>();
+    private int received;
+    private boolean ended;
+    private volatile Runnable canceller;
+
+    EventStream(int limit)
+    {
+        this.limit = limit;
+    }
+
+    /**
+     * Gets the next Event of the stream.
+     *
+     * <p>The returned future is completed on the thread the Event is received on, or right away
+     * if an Event was already received.
+     *
+     * @return A future of the next Event, completed exceptionally with a
+     *         {@link java.util.NoSuchElementException NoSuchElementException} if the stream ends first
+     */
+    public CompletableFuture<T> next()
+    {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        synchronized(this)
+        {
+            T event = buffered.poll();
+            if(event!=null)
+                future.complete(event);
+            else if(ended)
+                future.completeExceptionally(new NoSuchElementException("The stream has ended!"));
+            else
+                pending.add(future);
+        }
+        return future;
+    }
+
+    /**
+     * Gets whether the stream has ended, and will not receive any more Events.
+     *
+     * @return {@code true} if the stream has ended
+     */
+    public synchronized boolean isEnded()
+    {
+        return ended;
+    }
+
+    /**
+     * Ends the stream and frees its waiter.
+     * <br>Events already received can still be retrieved.
+     */
+    @Override
+    public void close()
+    {
+        Runnable canceller = this.canceller;
+        if(canceller!=null)
+            canceller.run();
+        end();
+    }
+
+    void setCanceller(Runnable canceller)
+    {
+        this.canceller = canceller;
+        if(isEnded())
+            canceller.run();
+    }
+
+    void offer(T event)
+    {
+        boolean last;
+        synchronized(this)
+        {
+            if(ended)
+                return;
+            last = ++received>=limit;
+        }
+        deliver(event);
+        if(last)
+            end();
+    }
+
+    void end()
+    {
+        List<CompletableFuture<T>> unfulfilled;
+        synchronized(this)
+        {
+            if(ended)
+                return;
+            ended = true;
+            unfulfilled = new ArrayList<>(pending);
+            pending.clear();
+        }
+        for(CompletableFuture<T> future : unfulfilled)
+            future.completeExceptionally(new NoSuchElementException("The stream has ended!"));
+    }
+
+    private void deliver(T event)
+    {
+        while(true)
+        {
+            CompletableFuture<T> future;
+            synchronized(this)
+            {
+                future = pending.poll();
+                if(future==null)
+                {
+                    buffered.add(event);
+                    return;
+                }
+            }
+            // futures cancelled by the caller are skipped so the Event is not lost
+            if(future.complete(event))
+                return;
+        }
+    }
+}
@@ -15,17 +15,34 @@
  */
 package com.jagrosh.jdautilities.waiter;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 import net.dv8tion.jda.core.events.Event;
 import net.dv8tion.jda.core.events.ShutdownEvent;
+import net.dv8tion.jda.core.events.message.GenericMessageEvent;
+import net.dv8tion.jda.core.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.core.events.message.guild.GenericGuildMessageEvent;
+import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
+import net.dv8tion.jda.core.events.message.guild.react.GenericGuildMessageReactionEvent;
+import net.dv8tion.jda.core.events.message.priv.GenericPrivateMessageEvent;
+import net.dv8tion.jda.core.events.message.priv.PrivateMessageReceivedEvent;
+import net.dv8tion.jda.core.events.message.priv.react.GenericPrivateMessageReactionEvent;
+import net.dv8tion.jda.core.events.message.react.GenericMessageReactionEvent;
 import net.dv8tion.jda.core.hooks.EventListener;
 import net.dv8tion.jda.core.hooks.SubscribeEvent;
 
@@ -35,6 +52,28 @@ import net.dv8tion.jda.core.hooks.SubscribeEvent;
  * <p>The EventWaiter is capable of handling specialized forms of {@link net.dv8tion.jda.core.events.Event Event}
  * that must meet criteria not normally specifiable without implementation of an {@link net.dv8tion.jda.core.hooks.EventListener EventListener}.
  * 
+ * <p>Waiters that are only interested in Events for a specific Message, channel, or User can be registered with a
+ * {@link com.jagrosh.jdautilities.waiter.EventWaiter.Route Route} and an ID. Such waiters are indexed by that ID, so
+ * they are only tested against Events carrying the same ID, rather than against every Event of their type.
+ * <br>This is what the menus of {@link com.jagrosh.jdautilities.menu} use, and is highly recommended for any
+ * waiter tied to a single Message.
+ * 
+ * <p>The EventWaiter is thread-safe: waiters may be registered from any thread, and Events may be dispatched from
+ * several threads at once (IE: multiple shards sharing an EventWaiter). Each waiter either runs its action or its
+ * timeout action, exactly once, even if it is matched by several Events at the same time.
+ * <br>Timeouts are tracked on a timing wheel that ticks every 100 milliseconds, so a timeout action may run up
+ * to one tick late, and a waiter that is matched cancels its timeout right away.
+ * 
+ * <p>The number of waiters an EventWaiter holds can be capped, overall, per User and per channel, with an
+ * {@link com.jagrosh.jdautilities.waiter.EventWaiter.OverflowPolicy OverflowPolicy} deciding what happens to
+ * waiters registered past a cap. The User and channel a waiter is for can be provided when registering it,
+ * independently of its Route. By default, the number of waiters is unbounded.
+ * 
+ * <p>By default, actions are run on the thread that dispatched the matching Event, and timeout actions on a
+ * scheduler the EventWaiter creates. Both can be changed using an
+ * {@link com.jagrosh.jdautilities.waiter.EventWaiterBuilder EventWaiterBuilder}, such as to keep actions that make
+ * REST requests off of the JDA event threads.
+ * 
  * <p>If you intend to use the EventWaiter, it is highly recommended you <b>DO NOT create multiple EventWaiters</b>!
  * Doing this will cause unnecessary increases in memory usage.
  * 
@@ -42,16 +81,190 @@ import net.dv8tion.jda.core.hooks.SubscribeEvent;
  */
 public class EventWaiter implements EventListener
 {
-    private final HashMap<Class<?>, List<WaitingEvent>> waitingEvents;
+    private static final Bucket[] NO_BUCKETS = new Bucket[0];
+    private static final long TIMEOUT_TICK_MILLIS = 100;
+    private static final int TIMEOUT_WHEEL_SIZE = 512;
+
+    private final ConcurrentHashMap<Class<?>, Bucket> buckets;
+    private final AtomicInteger bucketsVersion = new AtomicInteger();
+    private final ClassValue<Hierarchy> hierarchies = new ClassValue<Hierarchy>()
+    {
+        @Override
+        protected Hierarchy computeValue(Class<?> type)
+        {
+            return new Hierarchy();
+        }
+    };
     private final ScheduledExecutorService threadpool;
+    private final boolean ownsThreadpool;
+    private final boolean shutdownAutomatically;
+    private final Executor actionExecutor;
+    private final TimeoutWheel timeouts;
+    private final WaiterLimits limits;
+    private volatile boolean shutdown;
     
     /**
      * Constructs an empty EventWaiter.
      */
     public EventWaiter()
     {
-        waitingEvents = new HashMap<>();
-        threadpool = Executors.newSingleThreadScheduledExecutor();
+        this(null, true, null, 0, 0, 0, OverflowPolicy.REJECT);
+    }
+
+    /**
+     * Constructs an empty EventWaiter that tracks timeouts on the provided scheduler.
+     *
+     * @param  threadpool
+     *         The {@link java.util.concurrent.ScheduledExecutorService ScheduledExecutorService} to track timeouts
+     *         and run timeout actions on, or {@code null} to create one
+     * @param  shutdownAutomatically
+     *         Whether the EventWaiter {@link #shutdown() shuts down} once it receives a
+     *         {@link net.dv8tion.jda.core.events.ShutdownEvent ShutdownEvent}
+     *
+     * @since  1.9
+     */
+    public EventWaiter(ScheduledExecutorService threadpool, boolean shutdownAutomatically)
+    {
+        this(threadpool, shutdownAutomatically, null, 0, 0, 0, OverflowPolicy.REJECT);
+    }
+
+    /**
+     * Constructs an empty EventWaiter that holds a limited number of waiters.
+     *
+     * <p>Every waiter counts towards the overall cap. Waiters registered with the ID of the User or channel they are
+     * for also count towards the cap of that User or channel, whichever
+     * {@link com.jagrosh.jdautilities.waiter.EventWaiter.Route Route} they are dispatched by.
+     * <br>The menus of {@link com.jagrosh.jdautilities.menu} register their waiters with the ID of their channel, and
+     * with the ID of their User if they are limited to a single one.
+     *
+     * @param  maxWaiters
+     *         The maximum number of waiters held at once, or {@code 0} for no maximum
+     * @param  maxWaitersPerUser
+     *         The maximum number of waiters held at once for a single User, or {@code 0} for no maximum
+     * @param  maxWaitersPerChannel
+     *         The maximum number of waiters held at once for a single channel, or {@code 0} for no maximum
+     * @param  policy
+     *         The {@link com.jagrosh.jdautilities.waiter.EventWaiter.OverflowPolicy OverflowPolicy} to apply to
+     *         waiters registered past any cap
+     *
+     * @throws IllegalArgumentException
+     *         If any maximum is negative, or the policy is {@code null}
+     *
+     * @since  1.9
+     */
+    public EventWaiter(int maxWaiters, int maxWaitersPerUser, int maxWaitersPerChannel, OverflowPolicy policy)
+    {
+        this(null, true, null, maxWaiters, maxWaitersPerUser, maxWaitersPerChannel, policy);
+    }
+
+    /**
+     * Constructs an empty EventWaiter with the provided settings.
+     * <br>An {@link com.jagrosh.jdautilities.waiter.EventWaiterBuilder EventWaiterBuilder} is the more convenient way
+     * to construct one.
+     *
+     * @param  threadpool
+     *         The {@link java.util.concurrent.ScheduledExecutorService ScheduledExecutorService} to track timeouts
+     *         and run timeout actions on, or {@code null} to create one
+     * @param  shutdownAutomatically
+     *         Whether the EventWaiter {@link #shutdown() shuts down} once it receives a
+     *         {@link net.dv8tion.jda.core.events.ShutdownEvent ShutdownEvent}
+     * @param  actionExecutor
+     *         The {@link java.util.concurrent.Executor Executor} to run actions and timeout actions on,
+     *         or {@code null} to run them on the thread they are triggered from
+     * @param  maxWaiters
+     *         The maximum number of waiters held at once, or {@code 0} for no maximum
+     * @param  maxWaitersPerUser
+     *         The maximum number of waiters held at once for a single User, or {@code 0} for no maximum
+     * @param  maxWaitersPerChannel
+     *         The maximum number of waiters held at once for a single channel, or {@code 0} for no maximum
+     * @param  policy
+     *         The {@link com.jagrosh.jdautilities.waiter.EventWaiter.OverflowPolicy OverflowPolicy} to apply to
+     *         waiters registered past any cap
+     *
+     * @throws IllegalArgumentException
+     *         If any maximum is negative, or the policy is {@code null}
+     *
+     * @since  1.9
+     */
+    public EventWaiter(ScheduledExecutorService threadpool, boolean shutdownAutomatically, Executor actionExecutor,
+                       int maxWaiters, int maxWaitersPerUser, int maxWaitersPerChannel, OverflowPolicy policy)
+    {
+        if(maxWaiters<0 || maxWaitersPerUser<0 || maxWaitersPerChannel<0)
+            throw new IllegalArgumentException("The maximum number of waiters cannot be negative!");
+        if(policy==null)
+            throw new IllegalArgumentException("The overflow policy cannot be null!");
+        this.buckets = new ConcurrentHashMap<>();
+        this.ownsThreadpool = threadpool==null;
+        this.threadpool = threadpool==null ? Executors.newSingleThreadScheduledExecutor() : threadpool;
+        this.shutdownAutomatically = shutdownAutomatically;
+        this.actionExecutor = actionExecutor;
+        this.timeouts = new TimeoutWheel(this.threadpool, TIMEOUT_TICK_MILLIS, TimeUnit.MILLISECONDS, TIMEOUT_WHEEL_SIZE);
+        this.limits = maxWaiters>0 || maxWaitersPerUser>0 || maxWaitersPerChannel>0
+                ? new WaiterLimits(maxWaiters, maxWaitersPerUser, maxWaitersPerChannel, policy) : null;
+    }
+
+    /**
+     * Shuts the EventWaiter down.
+     *
+     * <p>All pending waiters are dropped without running their actions or timeout actions, as are waiters registered
+     * afterwards. Futures and streams opened afterwards fail right away. Timeouts stop being tracked, and the scheduler is shut down if the EventWaiter
+     * created it. A scheduler provided when constructing the EventWaiter is left running, as it may be shared.
+     *
+     * <p>This is called automatically when a {@link net.dv8tion.jda.core.events.ShutdownEvent ShutdownEvent}
+     * is received, unless the EventWaiter was constructed not to.
+     *
+     * @since  1.9
+     */
+    public void shutdown()
+    {
+        if(shutdown)
+            return;
+        shutdown = true;
+        timeouts.stop();
+        if(ownsThreadpool)
+            threadpool.shutdown();
+        for(Bucket bucket : buckets.values())
+            bucket.cancelAll();
+    }
+
+    /**
+     * Gets whether the EventWaiter has been {@link #shutdown() shut down}.
+     *
+     * @return {@code true} if the EventWaiter has been shut down
+     *
+     * @since  1.9
+     */
+    public boolean isShutdown()
+    {
+        return shutdown;
+    }
+
+    /**
+     * Gets the number of waiters that were not registered because a cap was reached under the
+     * {@link com.jagrosh.jdautilities.waiter.EventWaiter.OverflowPolicy#REJECT REJECT} policy, or because the
+     * registering thread was interrupted under the {@link com.jagrosh.jdautilities.waiter.EventWaiter.OverflowPolicy#BLOCK
+     * BLOCK} policy.
+     *
+     * @return The number of rejected waiters
+     *
+     * @since  1.9
+     */
+    public long getRejectedWaiters()
+    {
+        return limits==null ? 0L : limits.getRejected();
+    }
+
+    /**
+     * Gets the number of waiters that were ended early to make room for newer ones under the
+     * {@link com.jagrosh.jdautilities.waiter.EventWaiter.OverflowPolicy#EVICT_OLDEST EVICT_OLDEST} policy.
+     *
+     * @return The number of evicted waiters
+     *
+     * @since  1.9
+     */
+    public long getEvictedWaiters()
+    {
+        return limits==null ? 0L : limits.getEvicted();
     }
     
     /**
@@ -104,21 +317,326 @@ public class EventWaiter implements EventListener
      */
     public <T extends Event> void waitForEvent(Class<T> classType, Predicate<T> condition, Consumer<T> action, long timeout, TimeUnit unit, Runnable timeoutAction)
     {
-        List<WaitingEvent> list;
-        if(waitingEvents.containsKey(classType))
-            list = waitingEvents.get(classType);
+        if(register(classType, null, 0L, 0L, 0L, 1, condition, action, timeout, unit, timeoutAction)==null && timeoutAction!=null && !shutdown)
+            dispatch(timeoutAction).run();
+    }
+    
+    /**
+     * Waits an indefinite amount of time for an {@link net.dv8tion.jda.core.events.Event Event} carrying the
+     * provided ID for the {@link com.jagrosh.jdautilities.waiter.EventWaiter.Route Route}, that returns {@code true}
+     * when tested with the provided {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>Only Events the Route resolves the provided ID from are tested, so the Predicate does not need to check it.
+     * 
+     * @param  <T>
+     *         The type of Event to wait for
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for
+     * @param  route
+     *         The Route to resolve IDs from Events with
+     * @param  id
+     *         The ID Events must carry for the Route
+     * @param  condition
+     *         The Predicate to test when Events of the provided type carrying the ID are thrown
+     * @param  action
+     *         The Consumer to perform an action when the condition Predicate returns {@code true}
+     *
+     * @since  1.9
+     */
+    public <T extends Event> void waitForEvent(Class<T> classType, Route route, long id, Predicate<T> condition, Consumer<T> action)
+    {
+        waitForEvent(classType, route, id, condition, action, -1, null, null);
+    }
+
+    /**
+     * Waits a predetermined amount of time for an {@link net.dv8tion.jda.core.events.Event Event} carrying the
+     * provided ID for the {@link com.jagrosh.jdautilities.waiter.EventWaiter.Route Route}, that returns {@code true}
+     * when tested with the provided {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>Only Events the Route resolves the provided ID from are tested, so the Predicate does not need to check it.
+     * <br>Once started, there are two possible outcomes:
+     * <ul>
+     *     <li>The correct Event occurs within the time alloted, and the provided
+     *     {@link java.util.function.Consumer Consumer} will accept and execute using the same Event.</li>
+     *
+     *     <li>The time limit is elapsed and the provided {@link java.lang.Runnable} is executed.</li>
+     * </ul>
+     *
+     * @param  <T>
+     *         The type of Event to wait for
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for
+     * @param  route
+     *         The Route to resolve IDs from Events with
+     * @param  id
+     *         The ID Events must carry for the Route
+     * @param  condition
+     *         The Predicate to test when Events of the provided type carrying the ID are thrown
+     * @param  action
+     *         The Consumer to perform an action when the condition Predicate returns {@code true}
+     * @param  timeout
+     *         The maximum amount of time to wait for
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the timeout
+     * @param  timeoutAction
+     *         The Runnable to run if the time runs out before a correct Event is thrown
+     *
+     * @since  1.9
+     */
+    public <T extends Event> void waitForEvent(Class<T> classType, Route route, long id, Predicate<T> condition, Consumer<T> action,
+                                               long timeout, TimeUnit unit, Runnable timeoutAction)
+    {
+        waitForEvent(classType, route, id, 0L, 0L, condition, action, timeout, unit, timeoutAction);
+    }
+
+    /**
+     * Waits a predetermined amount of time for an {@link net.dv8tion.jda.core.events.Event Event} carrying the
+     * provided ID for the {@link com.jagrosh.jdautilities.waiter.EventWaiter.Route Route}, that returns {@code true}
+     * when tested with the provided {@link java.util.function.Predicate Predicate}, counting the waiter towards the
+     * caps of the provided User and channel.
+     *
+     * <p>The User and channel only decide which caps the waiter counts towards, and are independent of the Route,
+     * so a waiter routed by Message can still be capped per User and per channel.
+     * <br>Otherwise, this behaves the same as
+     * {@link #waitForEvent(Class, Route, long, Predicate, Consumer, long, TimeUnit, Runnable)}, where waiters
+     * routed by {@link com.jagrosh.jdautilities.waiter.EventWaiter.Route#USER Route.USER} or
+     * {@link com.jagrosh.jdautilities.waiter.EventWaiter.Route#CHANNEL Route.CHANNEL} count towards the caps
+     * of the User or channel they are routed by.
+     *
+     * @param  <T>
+     *         The type of Event to wait for
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for
+     * @param  route
+     *         The Route to resolve IDs from Events with
+     * @param  id
+     *         The ID Events must carry for the Route
+     * @param  userId
+     *         The ID of the User the waiter is for, or {@code 0} if it is not for a single User
+     * @param  channelId
+     *         The ID of the channel the waiter is for, or {@code 0} if it is not for a single channel
+     * @param  condition
+     *         The Predicate to test when Events of the provided type carrying the ID are thrown
+     * @param  action
+     *         The Consumer to perform an action when the condition Predicate returns {@code true}
+     * @param  timeout
+     *         The maximum amount of time to wait for
+     * @param  unit
+     *         The {@link java.util.concurrent.TimeUnit TimeUnit} measurement of the timeout
+     * @param  timeoutAction
+     *         The Runnable to run if the time runs out before a correct Event is thrown
+     *
+     * @since  1.9
+     *
+     * @see    com.jagrosh.jdautilities.waiter.EventWaiterBuilder#setMaxWaitersPerUser(int)
+     * @see    com.jagrosh.jdautilities.waiter.EventWaiterBuilder#setMaxWaitersPerChannel(int)
+     */
+    public <T extends Event> void waitForEvent(Class<T> classType, Route route, long id, long userId, long channelId,
+                                               Predicate<T> condition, Consumer<T> action,
+                                               long timeout, TimeUnit unit, Runnable timeoutAction)
+    {
+        if(register(classType, route, id, userId, channelId, 1, condition, action, timeout, unit, timeoutAction)==null
+                && timeoutAction!=null && !shutdown)
+            dispatch(timeoutAction).run();
+    }
+
+    /**
+     * Waits for an {@link net.dv8tion.jda.core.events.Event Event} that returns {@code true} when tested with the
+     * provided {@link java.util.function.Predicate Predicate}, completing the returned
+     * {@link java.util.concurrent.CompletableFuture CompletableFuture} with it.
+     *
+     * <p>The future is completed on the thread the Event is received on, so any lengthy work should be done using
+     * the {@code async} methods of the future. If the timeout elapses first, the future is completed exceptionally
+     * with a {@link java.util.concurrent.TimeoutException TimeoutException}.
+     * <br>Cancelling or completing the future before then stops waiting right away.
+     *
+     * @param  <T>
+     *         The type of Event to wait for
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for
+     * @param  condition
+     *         The Predicate to test when Events of the provided type are thrown
+     * @param  timeout
+     *         The maximum amount of time to wait for, or {@code null} to wait indefinitely
+     *
+     * @return A future completed with the first matching Event
+     *
+     * @since  1.9
+     */
+    public <T extends Event> CompletableFuture<T> await(Class<T> classType, Predicate<T> condition, Duration timeout)
+    {
+        return await(classType, null, 0L, condition, timeout);
+    }
+
+    /**
+     * Waits for an {@link net.dv8tion.jda.core.events.Event Event} carrying the provided ID for the
+     * {@link com.jagrosh.jdautilities.waiter.EventWaiter.Route Route}, that returns {@code true} when tested with
+     * the provided {@link java.util.function.Predicate Predicate}, completing the returned
+     * {@link java.util.concurrent.CompletableFuture CompletableFuture} with it.
+     *
+     * <p>The future is completed on the thread the Event is received on, so any lengthy work should be done using
+     * the {@code async} methods of the future. If the timeout elapses first, the future is completed exceptionally
+     * with a {@link java.util.concurrent.TimeoutException TimeoutException}.
+     * <br>Cancelling or completing the future before then stops waiting right away.
+     *
+     * @param  <T>
+     *         The type of Event to wait for
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for
+     * @param  route
+     *         The Route to resolve IDs from Events with
+     * @param  id
+     *         The ID Events must carry for the Route
+     * @param  condition
+     *         The Predicate to test when Events of the provided type carrying the ID are thrown
+     * @param  timeout
+     *         The maximum amount of time to wait for, or {@code null} to wait indefinitely
+     *
+     * @return A future completed with the first matching Event
+     *
+     * @since  1.9
+     */
+    public <T extends Event> CompletableFuture<T> await(Class<T> classType, Route route, long id, Predicate<T> condition, Duration timeout)
+    {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        WaitingEvent<T> we = register(classType, route, id, 0L, 0L, 1, condition, future::complete,
+                timeout==null ? -1 : timeout.toNanos(), TimeUnit.NANOSECONDS,
+                () -> future.completeExceptionally(new TimeoutException("Timed out waiting for "+classType.getSimpleName())));
+        if(we==null)
+            future.completeExceptionally(new RejectedExecutionException(shutdown
+                    ? "The EventWaiter has been shut down!" : "The EventWaiter is holding too many waiters!"));
         else
+            future.whenComplete((event, t) -> we.cancel());
+        return future;
+    }
+
+    /**
+     * Opens an {@link com.jagrosh.jdautilities.waiter.EventStream EventStream} of up to the provided number of
+     * {@link net.dv8tion.jda.core.events.Event Event}s that return {@code true} when tested with the provided
+     * {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>The stream ends once it has received its limit of Events, once the timeout elapses, or once it is closed,
+     * at which point its waiter is freed.
+     *
+     * @param  <T>
+     *         The type of Event to wait for
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for
+     * @param  condition
+     *         The Predicate to test when Events of the provided type are thrown
+     * @param  limit
+     *         The maximum number of Events the stream receives, must be at least {@code 1}
+     * @param  timeout
+     *         The maximum amount of time the stream stays open for, or {@code null} to stay open until it is closed
+     *
+     * @return The opened EventStream
+     *
+     * @since  1.9
+     */
+    public <T extends Event> EventStream<T> stream(Class<T> classType, Predicate<T> condition, int limit, Duration timeout)
+    {
+        return stream(classType, null, 0L, condition, limit, timeout);
+    }
+
+    /**
+     * Opens an {@link com.jagrosh.jdautilities.waiter.EventStream EventStream} of up to the provided number of
+     * {@link net.dv8tion.jda.core.events.Event Event}s carrying the provided ID for the
+     * {@link com.jagrosh.jdautilities.waiter.EventWaiter.Route Route}, that return {@code true} when tested with
+     * the provided {@link java.util.function.Predicate Predicate}.
+     *
+     * <p>The stream ends once it has received its limit of Events, once the timeout elapses, or once it is closed,
+     * at which point its waiter is freed.
+     *
+     * @param  <T>
+     *         The type of Event to wait for
+     * @param  classType
+     *         The {@link java.lang.Class} of the Event to wait for
+     * @param  route
+     *         The Route to resolve IDs from Events with
+     * @param  id
+     *         The ID Events must carry for the Route
+     * @param  condition
+     *         The Predicate to test when Events of the provided type carrying the ID are thrown
+     * @param  limit
+     *         The maximum number of Events the stream receives, must be at least {@code 1}
+     * @param  timeout
+     *         The maximum amount of time the stream stays open for, or {@code null} to stay open until it is closed
+     *
+     * @return The opened EventStream
+     *
+     * @since  1.9
+     */
+    public <T extends Event> EventStream<T> stream(Class<T> classType, Route route, long id, Predicate<T> condition, int limit, Duration timeout)
+    {
+        if(limit<1)
+            throw new IllegalArgumentException("The limit of a stream must be at least 1!");
+        EventStream<T> stream = new EventStream<>(limit);
+        WaitingEvent<T> we = register(classType, route, id, 0L, 0L, limit, condition, stream::offer,
+                timeout==null ? -1 : timeout.toNanos(), TimeUnit.NANOSECONDS, stream::end);
+        if(we==null)
+            stream.end();
+        else
+            stream.setCanceller(we::cancel);
+        return stream;
+    }
+
+    // Registers a waiter that is done after the provided number of matches, or once it times out, is evicted or
+    // is cancelled. Returns null if the waiter was rejected by the limits, or the EventWaiter is shut down.
+    // Without a User or channel ID, the waiter counts towards the caps of the one it is routed by, if any.
+    private <T extends Event> WaitingEvent<T> register(Class<T> classType, Route route, long id, long userId, long channelId,
+                                                       int uses, Predicate<T> condition, Consumer<T> action,
+                                                       long timeout, TimeUnit unit, Runnable timeoutAction)
+    {
+        if(shutdown)
+            return null;
+        Bucket bucket = bucket(classType);
+        WaitingEvent<T> we = new WaitingEvent<>(uses, condition, dispatch(action));
+        Runnable dispatchedTimeoutAction = timeoutAction==null ? null : dispatch(timeoutAction);
+        ConcurrentHashMap<Long, List<WaitingEvent>> index = route==null ? null : bucket.byRoute[route.ordinal()];
+        we.remover = index==null ? () -> bucket.waiters.remove(we) : () -> removeRouted(index, id, we);
+        Runnable expiry = () -> {
+            if(we.expire())
+            {
+                we.finish();
+                if(dispatchedTimeoutAction!=null)
+                    dispatchedTimeoutAction.run();
+            }
+        };
+        if(limits!=null)
         {
-            list = new ArrayList<>();
-            waitingEvents.put(classType, list);
+            WaiterLimits.Entry entry = limits.acquire(userId==0L && route==Route.USER ? id : userId,
+                    channelId==0L && route==Route.CHANNEL ? id : channelId, expiry);
+            if(entry==null)
+                return null;
+            we.setEntry(entry);
         }
-        WaitingEvent we = new WaitingEvent<>(condition, action);
-        list.add(we);
-        if(timeout>0 && unit!=null)
-            threadpool.schedule(() -> {
-                if(list.remove(we) && timeoutAction!=null)
-                    timeoutAction.run();
-            }, timeout, unit);
+        if(index==null)
+            bucket.waiters.add(we);
+        else
+            index.compute(id, (k, list) -> {
+                if(list == null)
+                    list = new CopyOnWriteArrayList<>();
+                list.add(we);
+                return list;
+            });
+        // evicted, or the EventWaiter was shut down, while being added
+        if(we.isDone() || (shutdown && we.expire()))
+            we.finish();
+        else if(timeout>0 && unit!=null)
+            we.setTimeout(timeouts.schedule(expiry, timeout, unit));
+        return we;
+    }
+    
+    private <T> Consumer<T> dispatch(Consumer<T> action)
+    {
+        Executor executor = actionExecutor;
+        return executor==null ? action : event -> executor.execute(() -> action.accept(event));
+    }
+
+    private Runnable dispatch(Runnable action)
+    {
+        Executor executor = actionExecutor;
+        return executor==null ? action : () -> executor.execute(action);
     }
     
     @Override
@@ -126,41 +644,310 @@ public class EventWaiter implements EventListener
     @SubscribeEvent
     public final void onEvent(Event event)
     {
-        Class c = event.getClass();
-        while(c.getSuperclass()!=null) {
-            if(waitingEvents.containsKey(c))
+        for(Bucket bucket : bucketsFor(event.getClass()))
+            bucket.attempt(event);
+        if(event instanceof ShutdownEvent && shutdownAutomatically)
+        {
+            shutdown();
+        }
+    }
+
+    private Bucket bucket(Class<?> type)
+    {
+        Bucket bucket = buckets.get(type);
+        if(bucket==null)
+        {
+            Bucket created = new Bucket();
+            bucket = buckets.putIfAbsent(type, created);
+            if(bucket==null)
             {
-                List<WaitingEvent> list = waitingEvents.get(c);
-                List<WaitingEvent> ulist = new ArrayList<>(list);
-                list.removeAll(ulist.stream().filter(i -> i.attempt(event)).collect(Collectors.toList()));
+                // only bumped once the bucket is visible, so no resolution can cache a hierarchy without it
+                bucketsVersion.incrementAndGet();
+                bucket = created;
             }
-            if(event instanceof ShutdownEvent)
+        }
+        return bucket;
+    }
+
+    // Resolves the buckets of the class and its superclasses, cached per class until a new type is registered
+    private Bucket[] bucketsFor(Class<?> type)
+    {
+        Hierarchy hierarchy = hierarchies.get(type);
+        Resolved resolved = hierarchy.resolved;
+        int version = bucketsVersion.get();
+        if(resolved!=null && resolved.version==version)
+            return resolved.buckets;
+        List<Bucket> found = new ArrayList<>();
+        for(Class<?> c = type; c.getSuperclass()!=null; c = c.getSuperclass())
+        {
+            Bucket bucket = buckets.get(c);
+            if(bucket!=null)
+                found.add(bucket);
+        }
+        Bucket[] array = found.isEmpty() ? NO_BUCKETS : found.toArray(new Bucket[found.size()]);
+        hierarchy.resolved = new Resolved(version, array);
+        return array;
+    }
+    
+    // Removes the waiter, dropping the list of its ID once empty
+    private static void removeRouted(ConcurrentHashMap<Long, List<WaitingEvent>> index, long id, WaitingEvent we)
+    {
+        index.computeIfPresent(id, (k, list) -> {
+            list.remove(we);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /**
+     * The ways an {@link com.jagrosh.jdautilities.waiter.EventWaiter EventWaiter} can index waiters
+     * to only test them against {@link net.dv8tion.jda.core.events.Event Event}s carrying a specific ID.
+     *
+     * <p>Events an ID cannot be resolved from for a Route are never tested against waiters registered
+     * with that Route.
+     *
+     * @since  1.9
+     */
+    public enum Route
+    {
+        /**
+         * Routes by the ID of the {@link net.dv8tion.jda.core.entities.Message Message} an Event is about.
+         * <br>Resolved from message and reaction events (IE: {@link net.dv8tion.jda.core.events.message.react.MessageReactionAddEvent
+         * MessageReactionAddEvent}).
+         */
+        MESSAGE,
+
+        /**
+         * Routes by the ID of the {@link net.dv8tion.jda.core.entities.MessageChannel MessageChannel} an Event happened in.
+         * <br>Resolved from message and reaction events.
+         */
+        CHANNEL,
+
+        /**
+         * Routes by the ID of the {@link net.dv8tion.jda.core.entities.User User} that caused an Event.
+         * <br>Resolved from received message events (the author) and reaction events (the reacting User).
+         */
+        USER;
+
+        private static final Route[] VALUES = values();
+
+        /**
+         * Resolves the ID this Route indexes the provided Event by.
+         *
+         * @param  event
+         *         The Event to resolve the ID of
+         *
+         * @return The ID, or {@code 0} if it cannot be resolved from the Event
+         */
+        public long resolve(Event event)
+        {
+            switch(this)
             {
-                threadpool.shutdown();
+                case MESSAGE:
+                    if(event instanceof GenericMessageEvent)
+                        return ((GenericMessageEvent) event).getMessageIdLong();
+                    if(event instanceof GenericGuildMessageEvent)
+                        return ((GenericGuildMessageEvent) event).getMessageIdLong();
+                    if(event instanceof GenericPrivateMessageEvent)
+                        return ((GenericPrivateMessageEvent) event).getMessageIdLong();
+                    return 0L;
+                case CHANNEL:
+                    if(event instanceof GenericMessageEvent)
+                        return ((GenericMessageEvent) event).getChannel().getIdLong();
+                    if(event instanceof GenericGuildMessageEvent)
+                        return ((GenericGuildMessageEvent) event).getChannel().getIdLong();
+                    if(event instanceof GenericPrivateMessageEvent)
+                        return ((GenericPrivateMessageEvent) event).getChannel().getIdLong();
+                    return 0L;
+                case USER:
+                    if(event instanceof GenericMessageReactionEvent)
+                        return ((GenericMessageReactionEvent) event).getUser().getIdLong();
+                    if(event instanceof MessageReceivedEvent)
+                        return ((MessageReceivedEvent) event).getAuthor().getIdLong();
+                    if(event instanceof GenericGuildMessageReactionEvent)
+                        return ((GenericGuildMessageReactionEvent) event).getUser().getIdLong();
+                    if(event instanceof GuildMessageReceivedEvent)
+                        return ((GuildMessageReceivedEvent) event).getAuthor().getIdLong();
+                    if(event instanceof GenericPrivateMessageReactionEvent)
+                        return ((GenericPrivateMessageReactionEvent) event).getUser().getIdLong();
+                    if(event instanceof PrivateMessageReceivedEvent)
+                        return ((PrivateMessageReceivedEvent) event).getAuthor().getIdLong();
+                    return 0L;
+                default:
+                    return 0L;
             }
-            c = c.getSuperclass();
+        }
+    }
+
+    /**
+     * What an {@link com.jagrosh.jdautilities.waiter.EventWaiter EventWaiter} does with waiters registered
+     * once it holds as many waiters as it is allowed to.
+     *
+     * @since  1.9
+     */
+    public enum OverflowPolicy
+    {
+        /**
+         * The new waiter is not registered.
+         * <br>Its timeout action is run right away, or, for futures and streams, they are completed exceptionally
+         * with a {@link java.util.concurrent.RejectedExecutionException RejectedExecutionException} and ended.
+         */
+        REJECT,
+
+        /**
+         * The oldest waiter of the full cap is ended early, running its timeout action, to make room for the new one.
+         */
+        EVICT_OLDEST,
+
+        /**
+         * The registering thread waits until another waiter is done.
+         * <br>This should only be used if waiters are never registered from the threads that dispatch Events,
+         * as those threads would otherwise stop dispatching the Events that free waiters up.
+         */
+        BLOCK
+    }
+
+    private static class Hierarchy
+    {
+        volatile Resolved resolved;
+    }
+
+    private static class Resolved
+    {
+        final int version;
+        final Bucket[] buckets;
+
+        Resolved(int version, Bucket[] buckets)
+        {
+            this.version = version;
+            this.buckets = buckets;
+        }
+    }
+
+    // The waiters of a single Event type, unrouted ones in a set and routed ones indexed by the ID of each Route
+    private static class Bucket
+    {
+        final Set<WaitingEvent> waiters = ConcurrentHashMap.newKeySet();
+        @SuppressWarnings("unchecked")
+        final ConcurrentHashMap<Long, List<WaitingEvent>>[] byRoute = new ConcurrentHashMap[Route.VALUES.length];
+
+        Bucket()
+        {
+            for(int i = 0; i < byRoute.length; i++)
+                byRoute[i] = new ConcurrentHashMap<>();
+        }
+
+        @SuppressWarnings("unchecked")
+        void attempt(Event event)
+        {
+            if(!waiters.isEmpty())
+            {
+                // waiters registered while this Event is handled must not be tested against it
+                for(WaitingEvent we : waiters.toArray(new WaitingEvent[0]))
+                    we.attempt(event);
+            }
+            for(Route route : Route.VALUES)
+            {
+                ConcurrentHashMap<Long, List<WaitingEvent>> index = byRoute[route.ordinal()];
+                if(index.isEmpty())
+                    continue;
+                long id = route.resolve(event);
+                List<WaitingEvent> list = id==0L ? null : index.get(id);
+                if(list==null)
+                    continue;
+                for(WaitingEvent we : list)
+                    we.attempt(event);
+            }
+        }
+
+        void cancelAll()
+        {
+            for(WaitingEvent we : waiters)
+                we.cancel();
+            for(ConcurrentHashMap<Long, List<WaitingEvent>> index : byRoute)
+                for(List<WaitingEvent> list : index.values())
+                    for(WaitingEvent we : list)
+                        we.cancel();
         }
     }
     
-    private class WaitingEvent<T extends Event>
+    private static class WaitingEvent<T extends Event>
     {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<WaitingEvent> USES =
+                AtomicIntegerFieldUpdater.newUpdater(WaitingEvent.class, "uses");
+
         final Predicate<T> condition;
         final Consumer<T> action;
+        // the number of matches left, the waiter is done once this reaches 0
+        private volatile int uses;
+        private volatile TimeoutWheel.Timeout timeout;
+        private volatile WaiterLimits.Entry entry;
+        Runnable remover;
         
-        WaitingEvent(Predicate<T> condition, Consumer<T> action)
+        WaitingEvent(int uses, Predicate<T> condition, Consumer<T> action)
         {
+            this.uses = uses;
             this.condition = condition;
             this.action = action;
         }
         
-        boolean attempt(T event)
+        // Every match claims a use, so the action runs at most as many times as the waiter has uses
+        void attempt(T event)
         {
-            if(condition.test(event))
+            if(uses<=0 || !condition.test(event))
+                return;
+            int remaining;
+            do
             {
-                action.accept(event);
-                return true;
+                remaining = uses;
+                if(remaining<=0)
+                    return;
             }
-            return false;
+            while(!USES.compareAndSet(this, remaining, remaining - 1));
+            if(remaining==1)
+                finish();
+            action.accept(event);
+        }
+
+        void setTimeout(TimeoutWheel.Timeout timeout)
+        {
+            this.timeout = timeout;
+            // done while the timeout was being scheduled
+            if(uses<=0)
+                timeout.cancel();
+        }
+
+        void setEntry(WaiterLimits.Entry entry)
+        {
+            this.entry = entry;
+        }
+
+        boolean isDone()
+        {
+            return uses<=0;
+        }
+
+        // Claims all remaining uses, returns false if the waiter was already done
+        boolean expire()
+        {
+            return USES.getAndSet(this, 0)>0;
+        }
+
+        void cancel()
+        {
+            if(expire())
+                finish();
+        }
+
+        void finish()
+        {
+            TimeoutWheel.Timeout timeout = this.timeout;
+            if(timeout!=null)
+                timeout.cancel();
+            remover.run();
+            WaiterLimits.Entry entry = this.entry;
+            if(entry!=null)
+                entry.release();
         }
     }
 }
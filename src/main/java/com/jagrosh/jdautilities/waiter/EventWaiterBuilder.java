@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.waiter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * A simple builder used to create an {@link com.jagrosh.jdautilities.waiter.EventWaiter EventWaiter}.
+ *
+ * <p>Once built, add the EventWaiter as an EventListener to {@link net.dv8tion.jda.core.JDA JDA}.
+ *
+ * @since  1.9
+ */
+public class EventWaiterBuilder
+{
+    private ScheduledExecutorService threadpool;
+    private boolean shutdownAutomatically = true;
+    private Executor actionExecutor;
+    private int maxWaiters = 0;
+    private int maxWaitersPerUser = 0;
+    private int maxWaitersPerChannel = 0;
+    private EventWaiter.OverflowPolicy overflowPolicy = EventWaiter.OverflowPolicy.REJECT;
+
+    /**
+     * Builds an {@link com.jagrosh.jdautilities.waiter.EventWaiter EventWaiter} with the provided settings.
+     *
+     * @return The EventWaiter built
+     *
+     * @throws IllegalArgumentException
+     *         If either maximum number of waiters is negative, or the overflow policy is {@code null}
+     */
+    public EventWaiter build()
+    {
+        return new EventWaiter(threadpool, shutdownAutomatically, actionExecutor, maxWaiters, maxWaitersPerUser, maxWaitersPerChannel,
+                overflowPolicy);
+    }
+
+    /**
+     * Sets the {@link java.util.concurrent.ScheduledExecutorService ScheduledExecutorService} the EventWaiter
+     * tracks timeouts and runs timeout actions on.
+     *
+     * <p>This allows an EventWaiter to share a scheduler with other parts of the bot, such as a
+     * {@link com.jagrosh.jdautilities.commandclient.CommandClient CommandClient}. A provided scheduler is never
+     * shut down by the EventWaiter.
+     * <br>By default, the EventWaiter creates a single-threaded scheduler of its own.
+     *
+     * @param  threadpool
+     *         The ScheduledExecutorService to use, or {@code null} to create one
+     *
+     * @return This builder
+     */
+    public EventWaiterBuilder setScheduler(ScheduledExecutorService threadpool)
+    {
+        this.threadpool = threadpool;
+        return this;
+    }
+
+    /**
+     * Sets whether the EventWaiter {@link com.jagrosh.jdautilities.waiter.EventWaiter#shutdown() shuts down} once
+     * it receives a {@link net.dv8tion.jda.core.events.ShutdownEvent ShutdownEvent}.
+     *
+     * <p>This should be disabled if the EventWaiter is shared by several shards, or outlives a JDA instance,
+     * in which case it should be shut down manually. Default {@code true}.
+     *
+     * @param  shutdownAutomatically
+     *         {@code true} to shut down on a ShutdownEvent
+     *
+     * @return This builder
+     */
+    public EventWaiterBuilder setShutdownAutomatically(boolean shutdownAutomatically)
+    {
+        this.shutdownAutomatically = shutdownAutomatically;
+        return this;
+    }
+
+    /**
+     * Sets the {@link java.util.concurrent.Executor Executor} that actions and timeout actions are run on.
+     *
+     * <p>By default, actions are run on the JDA event thread that dispatched the matching
+     * {@link net.dv8tion.jda.core.events.Event Event}, meaning an action that makes blocking REST requests
+     * (IE: a {@link com.jagrosh.jdautilities.menu.pagination.Paginator Paginator} re-rendering its page) delays every
+     * Event that follows it. Setting an Executor moves actions off of the event thread.
+     * <br>Conditions are always tested on the event thread, and should stay cheap.
+     *
+     * <p>Note that an Executor with several threads may run the actions of a
+     * {@link com.jagrosh.jdautilities.waiter.EventStream EventStream} out of order.
+     *
+     * @param  actionExecutor
+     *         The Executor to run actions on, or {@code null} to run them on the thread they are triggered from
+     *
+     * @return This builder
+     */
+    public EventWaiterBuilder setActionExecutor(Executor actionExecutor)
+    {
+        this.actionExecutor = actionExecutor;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of waiters the EventWaiter holds at once.
+     *
+     * @param  maxWaiters
+     *         The maximum number of waiters, or {@code 0} for no maximum (default)
+     *
+     * @return This builder
+     *
+     * @see    #setOverflowPolicy(EventWaiter.OverflowPolicy)
+     */
+    public EventWaiterBuilder setMaxWaiters(int maxWaiters)
+    {
+        this.maxWaiters = maxWaiters;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of waiters the EventWaiter holds at once for a single
+     * {@link net.dv8tion.jda.core.entities.User User}.
+     *
+     * <p>Only waiters registered with the ID of the User they are for count towards this, such as those
+     * of the menus of {@link com.jagrosh.jdautilities.menu} that are limited to a single User.
+     *
+     * @param  maxWaitersPerUser
+     *         The maximum number of waiters per User, or {@code 0} for no maximum (default)
+     *
+     * @return This builder
+     *
+     * @see    #setOverflowPolicy(EventWaiter.OverflowPolicy)
+     */
+    public EventWaiterBuilder setMaxWaitersPerUser(int maxWaitersPerUser)
+    {
+        this.maxWaitersPerUser = maxWaitersPerUser;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of waiters the EventWaiter holds at once for a single
+     * {@link net.dv8tion.jda.core.entities.MessageChannel MessageChannel}.
+     *
+     * <p>Only waiters registered with the ID of the channel they are for count towards this, such as those
+     * of the menus of {@link com.jagrosh.jdautilities.menu}.
+     *
+     * @param  maxWaitersPerChannel
+     *         The maximum number of waiters per channel, or {@code 0} for no maximum (default)
+     *
+     * @return This builder
+     *
+     * @see    #setOverflowPolicy(EventWaiter.OverflowPolicy)
+     */
+    public EventWaiterBuilder setMaxWaitersPerChannel(int maxWaitersPerChannel)
+    {
+        this.maxWaitersPerChannel = maxWaitersPerChannel;
+        return this;
+    }
+
+    /**
+     * Sets the {@link com.jagrosh.jdautilities.waiter.EventWaiter.OverflowPolicy OverflowPolicy} applied to
+     * waiters registered once a maximum is reached. Default {@link com.jagrosh.jdautilities.waiter.EventWaiter.OverflowPolicy#REJECT
+     * REJECT}.
+     *
+     * @param  overflowPolicy
+     *         The OverflowPolicy to apply
+     *
+     * @return This builder
+     */
+    public EventWaiterBuilder setOverflowPolicy(EventWaiter.OverflowPolicy overflowPolicy)
+    {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.waiter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A hashed timing wheel used by the {@link com.jagrosh.jdautilities.waiter.EventWaiter EventWaiter}
+ * to run timeout actions.
+ *
+ * <p>Scheduling and cancelling only append to a concurrent queue, and the wheel itself is only touched by
+ * the tick task running on the provided scheduler, so both are constant-time regardless of how many timeouts
+ * are outstanding. Timeouts run up to one tick late.
+ *
+ * @since  1.9
+ */
+final class TimeoutWheel
+{
+    private static final Logger LOG = LoggerFactory.getLogger(TimeoutWheel.class);
+    private static final int TRANSFER_LIMIT = 100000;
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final ScheduledExecutorService scheduler;
+    private final long tickNanos;
+    private final int mask;
+    private final Timeout[] heads;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile long startTime;
+    private volatile ScheduledFuture<?> ticker;
+    private volatile boolean stopped;
+    private long tick;
+
+    TimeoutWheel(ScheduledExecutorService scheduler, long tickDuration, TimeUnit unit, int wheelSize)
+    {
+        this.scheduler = scheduler;
+        this.tickNanos = Math.max(unit.toNanos(tickDuration), 1);
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.mask = size - 1;
+        this.heads = new Timeout[size];
+    }
+
+    /**
+     * Schedules the task to run once the delay has elapsed.
+     *
+     * @return A Timeout that can cancel the task
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit)
+    {
+        start();
+        Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(delay));
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    private void start()
+    {
+        if(!started.get() && started.compareAndSet(false, true))
+        {
+            startTime = System.nanoTime();
+            ticker = scheduler.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+            // stopped while starting
+            if(stopped)
+                ticker.cancel(false);
+        }
+    }
+
+    /**
+     * Stops ticking, so no outstanding or future timeouts run.
+     * <br>The scheduler itself is left running, as it may be shared.
+     */
+    void stop()
+    {
+        stopped = true;
+        ScheduledFuture<?> ticker = this.ticker;
+        if(ticker!=null)
+            ticker.cancel(false);
+    }
+
+    // Only ever runs on the scheduler, one tick at a time
+    private void advance()
+    {
+        removeCancelled();
+        transferScheduled();
+        int index = (int) tick & mask;
+        Timeout timeout = heads[index];
+        while(timeout != null)
+        {
+            Timeout next = timeout.next;
+            if(timeout.rounds <= 0)
+            {
+                unlink(timeout);
+                try
+                {
+                    timeout.expire();
+                }
+                catch(Throwable t)
+                {
+                    LOG.error("A timeout action threw an exception: ", t);
+                }
+            }
+            else
+                timeout.rounds--;
+            timeout = next;
+        }
+        tick++;
+    }
+
+    private void transferScheduled()
+    {
+        for(int i = 0; i < TRANSFER_LIMIT; i++)
+        {
+            Timeout timeout = scheduled.poll();
+            if(timeout == null)
+                return;
+            if(timeout.state != PENDING)
+                continue;
+            long due = Math.max((timeout.deadline - startTime + tickNanos - 1) / tickNanos, tick);
+            timeout.rounds = (due - tick) / heads.length;
+            timeout.bucket = (int) due & mask;
+            Timeout head = heads[timeout.bucket];
+            timeout.next = head;
+            if(head != null)
+                head.prev = timeout;
+            heads[timeout.bucket] = timeout;
+        }
+    }
+
+    private void removeCancelled()
+    {
+        Timeout timeout;
+        while((timeout = cancelled.poll()) != null)
+        {
+            // not in a bucket yet if it was cancelled before being transferred
+            if(timeout.bucket >= 0)
+                unlink(timeout);
+        }
+    }
+
+    private void unlink(Timeout timeout)
+    {
+        if(timeout.prev != null)
+            timeout.prev.next = timeout.next;
+        else
+            heads[timeout.bucket] = timeout.next;
+        if(timeout.next != null)
+            timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    /**
+     * A task scheduled on a {@link com.jagrosh.jdautilities.waiter.TimeoutWheel TimeoutWheel}.
+     */
+    final class Timeout
+    {
+        private final Runnable task;
+        private final long deadline;
+        volatile int state = PENDING;
+
+        // only accessed by the tick task
+        private Timeout prev;
+        private Timeout next;
+        private int bucket = -1;
+        private long rounds;
+
+        private Timeout(Runnable task, long deadline)
+        {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task, removing it from the wheel on the next tick.
+         *
+         * @return {@code true} if the task had not run and will not run
+         */
+        boolean cancel()
+        {
+            if(!STATE.compareAndSet(this, PENDING, CANCELLED))
+                return false;
+            cancelled.add(this);
+            return true;
+        }
+
+        private void expire()
+        {
+            if(STATE.compareAndSet(this, PENDING, EXPIRED))
+                task.run();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.waiter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps the number of waiters an {@link com.jagrosh.jdautilities.waiter.EventWaiter EventWaiter} holds,
+ * overall, per {@link net.dv8tion.jda.core.entities.User User} and per
+ * {@link net.dv8tion.jda.core.entities.MessageChannel MessageChannel}.
+ *
+ * <p>The User and channel of a waiter are provided when it is registered, independently of the
+ * {@link com.jagrosh.jdautilities.waiter.EventWaiter.Route Route} it is dispatched by.
+ * <br>Waiters are kept in registration order, once overall and once per User and channel, so the oldest
+ * waiter of any of them can be found and unlinked in constant time.
+ *
+ * @since  1.9
+ */
+final class WaiterLimits
+{
+    private static final int USER = 0;
+    private static final int CHANNEL = 1;
+
+    private final int maxWaiters;
+    private final int[] maxPerScope;
+    private final EventWaiter.OverflowPolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    // guarded by the lock
+    @SuppressWarnings("unchecked")
+    private final HashMap<Long, Scope>[] scopes = new HashMap[]{new HashMap<>(), new HashMap<>()};
+    private final Scope all = new Scope();
+
+    WaiterLimits(int maxWaiters, int maxWaitersPerUser, int maxWaitersPerChannel, EventWaiter.OverflowPolicy policy)
+    {
+        this.maxWaiters = maxWaiters;
+        this.maxPerScope = new int[]{maxWaitersPerUser, maxWaitersPerChannel};
+        this.policy = policy;
+    }
+
+    /**
+     * Makes room for a waiter according to the policy, and tracks it.
+     *
+     * @param  userId
+     *         The ID of the User the waiter is for, or {@code 0} if it is not for a single User
+     * @param  channelId
+     *         The ID of the channel the waiter is for, or {@code 0} if it is not for a single channel
+     * @param  evictor
+     *         Ends the waiter if it is evicted
+     *
+     * @return The Entry of the waiter, to release once it is done, or {@code null} if it was rejected
+     */
+    Entry acquire(long userId, long channelId, Runnable evictor)
+    {
+        List<Entry> victims = null;
+        Entry entry = new Entry(tracked(USER, userId), tracked(CHANNEL, channelId), evictor);
+        lock.lock();
+        try
+        {
+            while(true)
+            {
+                Scope full = fullScope(USER, entry.ids[USER]);
+                if(full==null)
+                    full = fullScope(CHANNEL, entry.ids[CHANNEL]);
+                if(full==null && maxWaiters>0 && all.size>=maxWaiters)
+                    full = all;
+                if(full==null)
+                    break;
+                switch(policy)
+                {
+                    case EVICT_OLDEST:
+                        Entry victim = full.head;
+                        unlink(victim);
+                        evicted.incrementAndGet();
+                        if(victims==null)
+                            victims = new ArrayList<>();
+                        victims.add(victim);
+                        break;
+                    case BLOCK:
+                        try
+                        {
+                            released.await();
+                        }
+                        catch(InterruptedException e)
+                        {
+                            Thread.currentThread().interrupt();
+                            rejected.incrementAndGet();
+                            return null;
+                        }
+                        break;
+                    default:
+                        rejected.incrementAndGet();
+                        return null;
+                }
+            }
+            link(entry);
+        }
+        finally
+        {
+            lock.unlock();
+            // evicted waiters end outside of the lock, as ending them releases them again
+            if(victims!=null)
+                victims.forEach(victim -> victim.evictor.run());
+        }
+        return entry;
+    }
+
+    long getRejected()
+    {
+        return rejected.get();
+    }
+
+    long getEvicted()
+    {
+        return evicted.get();
+    }
+
+    // The ID to track a waiter by for a kind of scope, or 0 if that kind is not capped
+    private long tracked(int kind, long id)
+    {
+        return maxPerScope[kind]>0 ? id : 0L;
+    }
+
+    private Scope fullScope(int kind, long id)
+    {
+        if(id==0L)
+            return null;
+        Scope scope = scopes[kind].get(id);
+        return scope!=null && scope.size>=maxPerScope[kind] ? scope : null;
+    }
+
+    private void link(Entry entry)
+    {
+        entry.linked = true;
+        entry.prev = all.tail;
+        if(all.tail!=null)
+            all.tail.next = entry;
+        else
+            all.head = entry;
+        all.tail = entry;
+        all.size++;
+        for(int kind = USER; kind <= CHANNEL; kind++)
+        {
+            if(entry.ids[kind]==0L)
+                continue;
+            Scope scope = scopes[kind].computeIfAbsent(entry.ids[kind], k -> new Scope());
+            entry.prevInScope[kind] = scope.tail;
+            if(scope.tail!=null)
+                scope.tail.nextInScope[kind] = entry;
+            else
+                scope.head = entry;
+            scope.tail = entry;
+            scope.size++;
+        }
+    }
+
+    private void unlink(Entry entry)
+    {
+        entry.linked = false;
+        if(entry.prev!=null)
+            entry.prev.next = entry.next;
+        else
+            all.head = entry.next;
+        if(entry.next!=null)
+            entry.next.prev = entry.prev;
+        else
+            all.tail = entry.prev;
+        entry.prev = null;
+        entry.next = null;
+        all.size--;
+        for(int kind = USER; kind <= CHANNEL; kind++)
+        {
+            if(entry.ids[kind]==0L)
+                continue;
+            HashMap<Long, Scope> index = scopes[kind];
+            Scope scope = index.get(entry.ids[kind]);
+            Entry prev = entry.prevInScope[kind];
+            Entry next = entry.nextInScope[kind];
+            if(prev!=null)
+                prev.nextInScope[kind] = next;
+            else
+                scope.head = next;
+            if(next!=null)
+                next.prevInScope[kind] = prev;
+            else
+                scope.tail = prev;
+            entry.prevInScope[kind] = null;
+            entry.nextInScope[kind] = null;
+            if(--scope.size==0)
+                index.remove(entry.ids[kind]);
+        }
+    }
+
+    /**
+     * A waiter tracked by a {@link com.jagrosh.jdautilities.waiter.WaiterLimits WaiterLimits}.
+     */
+    final class Entry
+    {
+        // the User and channel IDs, 0 for those that are not tracked
+        private final long[] ids;
+        private final Runnable evictor;
+
+        // guarded by the lock
+        private boolean linked;
+        private Entry prev, next;
+        private final Entry[] prevInScope = new Entry[2];
+        private final Entry[] nextInScope = new Entry[2];
+
+        private Entry(long userId, long channelId, Runnable evictor)
+        {
+            this.ids = new long[]{userId, channelId};
+            this.evictor = evictor;
+        }
+
+        /**
+         * Stops tracking the waiter once it is done, if it was not already evicted.
+         */
+        void release()
+        {
+            lock.lock();
+            try
+            {
+                if(linked)
+                {
+                    unlink(this);
+                    if(policy==EventWaiter.OverflowPolicy.BLOCK)
+                        released.signalAll();
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    // The waiters of a single User or channel, or of the whole EventWaiter, oldest first
+    private static final class Scope
+    {
+        Entry head, tail;
+        int size;
+    }
+}
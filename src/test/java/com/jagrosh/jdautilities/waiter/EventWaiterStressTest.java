@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.waiter;
+
+import net.dv8tion.jda.core.events.Event;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that each waiter of an {@link com.jagrosh.jdautilities.waiter.EventWaiter EventWaiter} ends exactly once,
+ * either by running its action or its timeout action, while Events are dispatched from several threads at once.
+ */
+public class EventWaiterStressTest
+{
+    private static final int WAITERS = 2000;
+    private static final int THREADS = 8;
+
+    private EventWaiter waiter;
+    private AtomicIntegerArray actions;
+    private AtomicIntegerArray timeouts;
+
+    @Before
+    public void setup()
+    {
+        waiter = new EventWaiter();
+        actions = new AtomicIntegerArray(WAITERS);
+        timeouts = new AtomicIntegerArray(WAITERS);
+    }
+
+    @After
+    public void tearDown()
+    {
+        waiter.shutdown();
+    }
+
+    @Test(timeout = 60000)
+    public void actionRunsOnceWhenEveryThreadDispatchesTheSameEvents() throws Exception
+    {
+        for(int i = 0; i < WAITERS; i++)
+            register(i, -1);
+        // every thread dispatches every Event, so each waiter is matched by all of them at about the same time
+        runConcurrently(thread -> {
+            for(int i = 0; i < WAITERS; i++)
+                waiter.onEvent(new KeyEvent(i));
+        });
+        for(int i = 0; i < WAITERS; i++)
+        {
+            assertEquals("Actions run for waiter " + i, 1, actions.get(i));
+            assertEquals("Timeouts run for waiter " + i, 0, timeouts.get(i));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void actionOrTimeoutRunsOnceWhenTimeoutsRaceDispatch() throws Exception
+    {
+        for(int i = 0; i < WAITERS; i++)
+            register(i, ThreadLocalRandom.current().nextInt(50, 500));
+        // Events arrive over about the same time as the timeouts elapse
+        runConcurrently(thread -> {
+            for(int i = thread; i < WAITERS * 2; i += THREADS)
+            {
+                waiter.onEvent(new KeyEvent(i % WAITERS));
+                if(i % 64 == 0)
+                    sleep(10);
+            }
+        });
+        awaitAllEnded();
+        // give any action or timeout action that would run a second time the chance to
+        sleep(500);
+        for(int i = 0; i < WAITERS; i++)
+            assertEquals("Actions and timeouts run for waiter " + i, 1, actions.get(i) + timeouts.get(i));
+    }
+
+    @Test(timeout = 60000)
+    public void actionOrTimeoutRunsOnceWhenRegisteredWhileDispatching() throws Exception
+    {
+        // half the threads register waiters while the other half dispatch, and each waiter times out eventually
+        CountDownLatch registered = new CountDownLatch(THREADS / 2);
+        runConcurrently(thread -> {
+            if(thread % 2 == 0)
+            {
+                for(int i = thread / 2; i < WAITERS; i += THREADS / 2)
+                    register(i, ThreadLocalRandom.current().nextInt(100, 300));
+                registered.countDown();
+            }
+            else
+            {
+                do
+                {
+                    for(int i = thread; i < WAITERS; i += THREADS)
+                        waiter.onEvent(new KeyEvent(i));
+                }
+                while(!registered.await(0, TimeUnit.MILLISECONDS));
+            }
+        });
+        awaitAllEnded();
+        sleep(500);
+        for(int i = 0; i < WAITERS; i++)
+            assertEquals("Actions and timeouts run for waiter " + i, 1, actions.get(i) + timeouts.get(i));
+    }
+
+    private void register(int key, long timeoutMillis)
+    {
+        waiter.waitForEvent(KeyEvent.class, event -> event.key == key, event -> actions.incrementAndGet(key),
+                timeoutMillis, TimeUnit.MILLISECONDS, () -> timeouts.incrementAndGet(key));
+    }
+
+    private void awaitAllEnded() throws InterruptedException
+    {
+        for(int i = 0; i < WAITERS; i++)
+        {
+            while(actions.get(i) + timeouts.get(i) == 0)
+                Thread.sleep(10);
+        }
+    }
+
+    private static void runConcurrently(ThreadTask task) throws Exception
+    {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for(int t = 0; t < THREADS; t++)
+        {
+            int thread = t;
+            Thread th = new Thread(() -> {
+                try
+                {
+                    start.await();
+                    task.run(thread);
+                }
+                catch(Throwable e)
+                {
+                    synchronized(failures)
+                    {
+                        failures.add(e);
+                    }
+                }
+            });
+            th.start();
+            threads.add(th);
+        }
+        start.countDown();
+        for(Thread th : threads)
+            th.join();
+        assertTrue("Threads failed: " + failures, failures.isEmpty());
+    }
+
+    private static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface ThreadTask
+    {
+        void run(int thread) throws Exception;
+    }
+
+    private static class KeyEvent extends Event
+    {
+        private final int key;
+
+        private KeyEvent(int key)
+        {
+            super(null, 0);
+            this.key = key;
+        }
+    }
+}